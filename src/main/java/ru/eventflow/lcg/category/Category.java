@@ -1,5 +1,16 @@
 package ru.eventflow.lcg.category;
 
 public interface Category {
+
+    /**
+     * The id of a category which was not obtained from a {@link CategoryInterner}.
+     */
+    int UNINTERNED = -1;
+
     String getSymbol();
+
+    /**
+     * @return a small id, unique among the categories of the same interner, or {@link #UNINTERNED}
+     */
+    int getId();
 }
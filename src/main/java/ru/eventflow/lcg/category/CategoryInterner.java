@@ -0,0 +1,116 @@
+package ru.eventflow.lcg.category;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Hash-consing of categories: structurally equal categories obtained from the same interner are the same instance,
+ * so they can be compared by reference or by id. The sub-categories of an interned category are interned as well.
+ * <p>
+ * Ids are assigned in the order the categories are first seen, starting from 0. An interner is thread-safe.
+ * A strong interner keeps every category it has seen, so it is meant for a bounded set of categories, such as
+ * a lexicon. A {@link #weak()} interner only keeps the categories which are still in use elsewhere, so it can be used
+ * for arbitrary input: a category which was dropped is created again, with a new id, the next time it is seen.
+ */
+public class CategoryInterner {
+
+    private static final CategoryInterner DEFAULT = weak();
+
+    /**
+     * the canonical instances, each of them is the key of its own entry, so an entry lives as long as its category
+     */
+    private final Map<Category, WeakReference<Category>> table = new WeakHashMap<>();
+
+    /**
+     * the categories kept alive by a strong interner, or null
+     */
+    private final Set<Category> retained;
+
+    private int ids = 0;
+
+    public CategoryInterner() {
+        this(true);
+    }
+
+    private CategoryInterner(boolean strong) {
+        this.retained = strong ? new HashSet<>() : null;
+    }
+
+    /**
+     * @return a new interner which does not keep the categories alive
+     */
+    public static CategoryInterner weak() {
+        return new CategoryInterner(false);
+    }
+
+    /**
+     * The default interner is weak, so parsing arbitrary sequents does not make it grow without bound.
+     *
+     * @return the interner which is used to parse the categories of sequents
+     */
+    public static CategoryInterner getDefault() {
+        return DEFAULT;
+    }
+
+    public PrimitiveCategory primitive(String symbol) {
+        return (PrimitiveCategory) canonical(new PrimitiveCategory(symbol), id -> new PrimitiveCategory(symbol, id));
+    }
+
+    public ComplexCategory complex(Connective connective, Category left, Category right) {
+        // the children are interned, so the key is compared by reference below the root
+        ComplexCategory key = new ComplexCategory(connective, intern(left), intern(right));
+        return (ComplexCategory) canonical(key, id -> new ComplexCategory(connective, key.getLeft(), key.getRight(), id));
+    }
+
+    /**
+     * @return the instance of this interner which is equal to the category
+     */
+    public Category intern(Category category) {
+        if (category instanceof PrimitiveCategory) {
+            if (category.getId() != Category.UNINTERNED && lookup(category) == category) {
+                return category;
+            }
+            return primitive(category.getSymbol());
+        } else if (category instanceof ComplexCategory) {
+            ComplexCategory c = (ComplexCategory) category;
+            if (c.getId() != Category.UNINTERNED && lookup(c) == c) {
+                return c;
+            }
+            return complex(c.getConnective(), c.getLeft(), c.getRight());
+        } else {
+            throw new IllegalArgumentException("Unknown category: " + category);
+        }
+    }
+
+    /**
+     * @return the number of ids assigned so far, which is the number of distinct categories seen by a strong interner
+     */
+    public synchronized int size() {
+        return ids;
+    }
+
+    private synchronized Category lookup(Category key) {
+        WeakReference<Category> reference = table.get(key);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * @return the canonical instance equal to the key, which is created with the next id if there is none
+     */
+    private synchronized Category canonical(Category key, IntFunction<Category> factory) {
+        Category category = lookup(key);
+        if (category == null) {
+            category = factory.apply(ids++);
+            table.put(category, new WeakReference<>(category));
+            if (retained != null) {
+                retained.add(category);
+            }
+        }
+        return category;
+    }
+
+}
@@ -7,17 +7,48 @@ import java.util.List;
  * A parser for syntactic categories.
  * <p>
  * Expr -> '(' Expr ')' | Expr '/' Expr | Expr '\' Expr | Expr '*' Expr | Terminal
+ * <p>
+ * The categories are interned, by default with {@link CategoryInterner#getDefault()}.
  */
 public class CategoryParser {
 
+    private final CategoryInterner interner;
+
+    public CategoryParser() {
+        this(CategoryInterner.getDefault());
+    }
+
+    public CategoryParser(CategoryInterner interner) {
+        this.interner = interner;
+    }
+
     public Category parse(String s) {
         return parse(tokenize(s.trim()));
     }
 
+    /**
+     * A shift-reduce parser with an explicit stack, which reduces as soon as a rule applies, so the connectives are
+     * left-associative and of equal precedence. Every token is shifted once and every reduction pops the stack,
+     * so the time is linear in the number of tokens.
+     *
+     * @return the category, or null if the tokens are not a category, e.g. if a parenthesis is not closed
+     */
     public Category parse(List<Token> tokens) {
         List<Item> stack = new ArrayList<>();
-        boolean accepted = bottomUp(tokens, stack);
-        return (accepted ? stack.get(0).node : null);
+        for (Token token : tokens) {
+            TokenType type = token.getTokenType();
+            if (type == TokenType.WHITESPACE) {
+                continue;
+            }
+            if (type == TokenType.TERMINAL) {
+                // EXPR -> TERMINAL
+                stack.add(new Item(TokenType.EXPR, interner.primitive(token.getOrthography())));
+            } else {
+                stack.add(new Item(type, null));
+            }
+            reduce(stack);
+        }
+        return (stack.size() == 1 && stack.get(0).type == TokenType.EXPR ? stack.get(0).node : null);
     }
 
     private List<Token> tokenize(String s) {
@@ -59,97 +90,50 @@ public class CategoryParser {
         buffer.setLength(0);
     }
 
-    private boolean accept(List<Token> tokens, List<Item> stack) {
-        return tokens.size() == 0 && stack.size() == 1 && stack.get(0).token.getTokenType() == TokenType.EXPR;
-    }
-
-    private boolean bottomUp(List<Token> tokens, List<Item> stack) {
-        return accept(tokens, stack) || reduce(tokens, stack) || shift(tokens, stack);
-    }
-
-    private boolean reduce(List<Token> tokens, List<Item> stack) {
+    private void reduce(List<Item> stack) {
         int size = stack.size();
-
-        if (size > 0) {
-            Item t3 = stack.get(size - 1);
-
-            // EXPR -> TERMINAL
-            if (t3.token.getTokenType() == TokenType.TERMINAL) {
-                stack.set(size - 1, new Item(
-                        new Token(TokenType.EXPR, t3.token.getOrthography()),
-                        new PrimitiveCategory(t3.token.getOrthography()))
-                );
-                return bottomUp(tokens, stack);
-            }
-        }
-
-        if (size > 2) {
+        while (size > 2) {
             Item t3 = stack.get(size - 1);
             Item t2 = stack.get(size - 2);
             Item t1 = stack.get(size - 3);
 
-            Item t = null;
-
-            // EXPR -> LP EXPR RP
-            if (t1.token.getTokenType() == TokenType.LP && t2.token.getTokenType() == TokenType.EXPR && t3.token.getTokenType() == TokenType.RP) {
-                t = new Item(
-                        new Token(TokenType.EXPR, t2.token.getOrthography()),
-                        t2.node
-                );
-            }
-
-            // EXPR -> EXPR LEFT EXPR
-            if (t1.token.getTokenType() == TokenType.EXPR && t2.token.getTokenType() == TokenType.LEFT && t3.token.getTokenType() == TokenType.EXPR) {
-                t = new Item(
-                        new Token(TokenType.EXPR, "(" + t1.token.getOrthography() + "\\" + t3.token.getOrthography() + ")"),
-                        new ComplexCategory(Connective.LEFT_DIVISION, t1.node, t3.node)
-                );
-            }
-
-            // EXPR -> EXPR RIGHT EXPR
-            if (t1.token.getTokenType() == TokenType.EXPR && t2.token.getTokenType() == TokenType.RIGHT && t3.token.getTokenType() == TokenType.EXPR) {
-                t = new Item(
-                        new Token(TokenType.EXPR, "(" + t1.token.getOrthography() + "/" + t3.token.getOrthography() + ")"),
-                        new ComplexCategory(Connective.RIGHT_DIVISION, t1.node, t3.node)
-                );
-            }
-
-            // EXPR -> EXPR MULT EXPR
-            if (t1.token.getTokenType() == TokenType.EXPR && t2.token.getTokenType() == TokenType.MULT && t3.token.getTokenType() == TokenType.EXPR) {
-                t = new Item(
-                        new Token(TokenType.EXPR, "(" + t1.token.getOrthography() + "*" + t3.token.getOrthography() + ")"),
-                        new ComplexCategory(Connective.MULTIPLICATION, t1.node, t3.node)
-                );
+            Category node;
+            if (t1.type == TokenType.LP && t2.type == TokenType.EXPR && t3.type == TokenType.RP) {
+                // EXPR -> LP EXPR RP
+                node = t2.node;
+            } else if (t1.type == TokenType.EXPR && t3.type == TokenType.EXPR && connective(t2.type) != null) {
+                // EXPR -> EXPR LEFT EXPR | EXPR RIGHT EXPR | EXPR MULT EXPR
+                node = interner.complex(connective(t2.type), t1.node, t3.node);
+            } else {
+                return;
             }
 
-            if (t != null) {
-                stack.remove(size - 1);
-                stack.remove(size - 2);
-                stack.set(size - 3, t);
-                return bottomUp(tokens, stack);
-            }
+            stack.remove(size - 1);
+            stack.remove(size - 2);
+            stack.set(size - 3, new Item(TokenType.EXPR, node));
+            size -= 2;
         }
-
-        return false;
     }
 
-    private boolean shift(List<Token> tokens, List<Item> stack) {
-        for (int i = 0; i < tokens.size(); i++) {
-            if (tokens.get(i).getTokenType() == TokenType.WHITESPACE) {
-                continue;
-            }
-            stack.add(new Item(tokens.get(i), null));
-            return bottomUp(tokens.subList(i + 1, tokens.size()), stack);
+    private static Connective connective(TokenType type) {
+        switch (type) {
+            case LEFT:
+                return Connective.LEFT_DIVISION;
+            case RIGHT:
+                return Connective.RIGHT_DIVISION;
+            case MULT:
+                return Connective.MULTIPLICATION;
+            default:
+                return null;
         }
-        return false;
     }
 
-    private class Item {
-        Token token;
-        Category node;
+    private static class Item {
+        final TokenType type;
+        final Category node;
 
-        Item(Token token, Category node) {
-            this.token = token;
+        Item(TokenType type, Category node) {
+            this.type = type;
             this.node = node;
         }
     }
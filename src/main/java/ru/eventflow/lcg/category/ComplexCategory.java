@@ -2,21 +2,42 @@ package ru.eventflow.lcg.category;
 
 import java.util.Objects;
 
+/**
+ * Categories are immutable, so the hash code is computed once, when the category is built, and the symbol
+ * is computed once, when it is first requested.
+ */
 public class ComplexCategory implements Category {
 
-    private Connective connective;
-    private Category left;
-    private Category right;
+    private final Connective connective;
+    private final Category left;
+    private final Category right;
+    private String symbol;
+    private final int hash;
+    private final int id;
 
     public ComplexCategory(Connective connective, Category left, Category right) {
+        this(connective, left, right, UNINTERNED);
+    }
+
+    ComplexCategory(Connective connective, Category left, Category right, int id) {
         this.connective = connective;
         this.left = left;
         this.right = right;
+        this.hash = Objects.hash(connective, left, right);
+        this.id = id;
     }
 
     @Override
     public String getSymbol() {
-        return "(" + left.getSymbol() + connective.getSymbol() + right.getSymbol() + ")";
+        if (symbol == null) {
+            symbol = "(" + left.getSymbol() + connective.getSymbol() + right.getSymbol() + ")";
+        }
+        return symbol;
+    }
+
+    @Override
+    public int getId() {
+        return id;
     }
 
     public Connective getConnective() {
@@ -38,6 +59,7 @@ public class ComplexCategory implements Category {
 
         ComplexCategory that = (ComplexCategory) o;
 
+        if (hash != that.hash) return false;
         if (connective != that.connective) return false;
         if (left != null ? !left.equals(that.left) : that.left != null) return false;
         return right != null ? right.equals(that.right) : that.right == null;
@@ -45,7 +67,7 @@ public class ComplexCategory implements Category {
 
     @Override
     public int hashCode() {
-        return Objects.hash(connective, left, right);
+        return hash;
     }
 
     @Override
@@ -3,9 +3,15 @@ package ru.eventflow.lcg.category;
 public class PrimitiveCategory implements Category {
 
     private final String symbol;
+    private final int id;
 
     public PrimitiveCategory(String symbol) {
+        this(symbol, UNINTERNED);
+    }
+
+    PrimitiveCategory(String symbol, int id) {
         this.symbol = symbol;
+        this.id = id;
     }
 
     @Override
@@ -13,6 +19,11 @@ public class PrimitiveCategory implements Category {
         return symbol;
     }
 
+    @Override
+    public int getId() {
+        return id;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,5 +1,6 @@
 package ru.eventflow.lcg.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -15,13 +16,25 @@ public class ParseDTO {
     @JsonProperty("parses")
     private List<LinkageDTO> parses;
 
+    /**
+     * the name of the prefilter which rejected the sequent, if any
+     */
+    @JsonProperty("rejected")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String rejectedBy;
+
     public ParseDTO() {
     }
 
     public ParseDTO(SequentDTO sequent, List<CategoryDTO> categories, List<LinkageDTO> parses) {
+        this(sequent, categories, parses, null);
+    }
+
+    public ParseDTO(SequentDTO sequent, List<CategoryDTO> categories, List<LinkageDTO> parses, String rejectedBy) {
         this.sequent = sequent;
         this.categories = categories;
         this.parses = parses;
+        this.rejectedBy = rejectedBy;
     }
 
     public SequentDTO getSequent() {
@@ -35,4 +48,8 @@ public class ParseDTO {
     public List<LinkageDTO> getParses() {
         return parses;
     }
+
+    public String getRejectedBy() {
+        return rejectedBy;
+    }
 }
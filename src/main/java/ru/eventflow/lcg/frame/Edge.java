@@ -1,16 +1,14 @@
 package ru.eventflow.lcg.frame;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A hyperedge in term graphs always has a single target vertex and one or more source vertices.
+ * <p>
+ * Edges are values: two edges are equal if they connect the same vertices and have the same type and partition.
  */
 public class Edge {
 
-    private static AtomicInteger counter = new AtomicInteger();
-
-    private final int id = counter.incrementAndGet();
     private final Vertex source;
     private final Vertex target;
     private final Type type;
@@ -54,7 +52,7 @@ public class Edge {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Edge edge = (Edge) o;
-        return id == edge.id &&
+        return Objects.equals(source, edge.source) &&
                 Objects.equals(target, edge.target) &&
                 type == edge.type &&
                 partition == edge.partition;
@@ -62,7 +60,7 @@ public class Edge {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, target, type, partition);
+        return Objects.hash(source, target, type, partition);
     }
 
     public Type getType() {
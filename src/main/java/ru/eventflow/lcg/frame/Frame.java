@@ -10,6 +10,8 @@ public interface Frame {
 
     Linkage getLinkage();
 
+    TermGraph getGraph();
+
     int getIndex(Vertex vertex);
 
 }
@@ -0,0 +1,193 @@
+package ru.eventflow.lcg.frame;
+
+import ru.eventflow.lcg.category.Category;
+import ru.eventflow.lcg.category.CategoryInterner;
+import ru.eventflow.lcg.category.ComplexCategory;
+import ru.eventflow.lcg.category.Connective;
+import ru.eventflow.lcg.category.PrimitiveCategory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The frame of a single polarized category: its atoms in the order of the periphery and its frame edges between
+ * them, with atoms referred to by their local index.
+ * <p>
+ * A template is compiled once per (category, polarity) from the templates of its immediate sub-categories and is
+ * cached, so a proof frame is built by copying the templates of its categories with the ids shifted by an offset.
+ * The cache is thread-safe and keeps the {@value #CAPACITY} most recently used templates, so open-vocabulary input
+ * does not make it grow without bound. An evicted template is simply compiled again, and its atoms are no longer
+ * kept alive in the default {@link CategoryInterner}.
+ */
+final class FrameTemplate {
+
+    static final int CAPACITY = 4096;
+
+    private static final Map<Key, FrameTemplate> CACHE = new LinkedHashMap<Key, FrameTemplate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, FrameTemplate> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    private final Category[] categories;
+    private final Polarity[] polarities;
+
+    /**
+     * the atom which the neighbourhood of the polarized category is assigned to
+     */
+    private final int head;
+
+    private final int[] sources;
+    private final int[] targets;
+    private final Edge.Type[] types;
+
+    private FrameTemplate(Category[] categories, Polarity[] polarities, int head, int[] sources, int[] targets, Edge.Type[] types) {
+        this.categories = categories;
+        this.polarities = polarities;
+        this.head = head;
+        this.sources = sources;
+        this.targets = targets;
+        this.types = types;
+    }
+
+    static FrameTemplate of(Category category, Polarity polarity) {
+        Key key = new Key(category, polarity);
+        FrameTemplate template;
+        synchronized (CACHE) {
+            template = CACHE.get(key);
+        }
+        if (template == null) {
+            // compiled outside of the lock, compiling a template looks up the templates of the sub-categories
+            template = compile(category, polarity);
+            synchronized (CACHE) {
+                FrameTemplate previous = CACHE.putIfAbsent(key, template);
+                if (previous != null) {
+                    template = previous;
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * @return the number of cached templates
+     */
+    static int cached() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    int size() {
+        return categories.length;
+    }
+
+    /**
+     * Creates the atoms of the template with ids starting from offset and adds them and the frame edges
+     * between them to a linkage.
+     */
+    void instantiate(int offset, Vertex[] atoms, Linkage linkage) {
+        for (int i = 0; i < categories.length; i++) {
+            Vertex atom = new Vertex(offset + i, categories[i], polarities[i]);
+            atoms[offset + i] = atom;
+            linkage.addVertex(atom);
+        }
+        for (int k = 0; k < sources.length; k++) {
+            linkage.addEdge(atoms[offset + sources[k]], atoms[offset + targets[k]], Edge.Partition.FRAME, types[k]);
+        }
+    }
+
+    /**
+     * Each rule introduces an edge from A to B, and the neighbourhood of the category on the lhs is assigned to A,
+     * so the edge connects the heads of A and B, and the head of A is the head of the category.
+     * <pre>
+     * A/B (-)   =>  A- --> B+
+     * A\B (-)   =>  B+ <-- A-
+     * A/B (+)   =>  B- <~~ A+
+     * A\B (+)   =>  A+ ~~> B-
+     * </pre>
+     */
+    private static FrameTemplate compile(Category category, Polarity polarity) {
+        if (category instanceof PrimitiveCategory) {
+            // atoms are linked by comparing their categories by reference; the default interner is weak, but every
+            // template holds its atoms, so all the templates in use share the same instances
+            Category atom = CategoryInterner.getDefault().intern(category);
+            return new FrameTemplate(new Category[]{atom}, new Polarity[]{polarity}, 0, new int[0], new int[0], new Edge.Type[0]);
+        }
+
+        ComplexCategory c = (ComplexCategory) category;
+        if (c.getConnective() == Connective.MULTIPLICATION) {
+            throw new IllegalStateException("Multiplicative fragment of L is not supported");
+        }
+
+        Polarity opposite = polarity == Polarity.POSITIVE ? Polarity.NEGATIVE : Polarity.POSITIVE;
+        FrameTemplate a = of(c.getLeft(), polarity);
+        FrameTemplate b = of(c.getRight(), opposite);
+        Edge.Type type = polarity == Polarity.NEGATIVE ? Edge.Type.REGULAR : Edge.Type.LAMBEK;
+
+        // the atoms of A come first for A/B (-) and A\B (+)
+        boolean leftFirst = (polarity == Polarity.NEGATIVE) == (c.getConnective() == Connective.RIGHT_DIVISION);
+        FrameTemplate first = leftFirst ? a : b;
+        FrameTemplate second = leftFirst ? b : a;
+        int offsetA = leftFirst ? 0 : b.size();
+        int offsetB = leftFirst ? a.size() : 0;
+
+        int size = a.size() + b.size();
+        Category[] categories = new Category[size];
+        Polarity[] polarities = new Polarity[size];
+        System.arraycopy(first.categories, 0, categories, 0, first.size());
+        System.arraycopy(second.categories, 0, categories, first.size(), second.size());
+        System.arraycopy(first.polarities, 0, polarities, 0, first.size());
+        System.arraycopy(second.polarities, 0, polarities, first.size(), second.size());
+
+        int edges = a.sources.length + b.sources.length + 1;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        Edge.Type[] types = new Edge.Type[edges];
+        int k = 0;
+        k = copyEdges(a, offsetA, sources, targets, types, k);
+        k = copyEdges(b, offsetB, sources, targets, types, k);
+        sources[k] = offsetA + a.head;
+        targets[k] = offsetB + b.head;
+        types[k] = type;
+
+        return new FrameTemplate(categories, polarities, offsetA + a.head, sources, targets, types);
+    }
+
+    private static int copyEdges(FrameTemplate template, int offset, int[] sources, int[] targets, Edge.Type[] types, int k) {
+        for (int e = 0; e < template.sources.length; e++, k++) {
+            sources[k] = offset + template.sources[e];
+            targets[k] = offset + template.targets[e];
+            types[k] = template.types[e];
+        }
+        return k;
+    }
+
+    private static class Key {
+        private final Category category;
+        private final Polarity polarity;
+
+        Key(Category category, Polarity polarity) {
+            this.category = category;
+            this.polarity = polarity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            return polarity == key.polarity && category.equals(key.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, polarity);
+        }
+    }
+
+}
@@ -1,30 +1,38 @@
 package ru.eventflow.lcg.frame;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
 
 /**
  * A (Partial) Term Graph is part of a proof net.
  * It represents a linkage between atoms and sibling nodes contained in a frame.
+ * <p>
+ * Edges are indexed per vertex, separately for incoming and outgoing edges and for every combination of
+ * {@link Edge.Type} and {@link Edge.Partition}, so that neighbourhood lookups never scan the whole edge set.
  */
 public class Linkage {
 
+    private static final int BUCKETS = Edge.Type.values().length * Edge.Partition.values().length;
+
     private Set<Vertex> vertices;
     private Set<Edge> edges;
+    private Map<Edge.Type, Set<Edge>> edgesByType;
+    private Map<Vertex, Adjacency> adjacency;
 
     public Linkage() {
         vertices = new HashSet<>();
         edges = new HashSet<>();
+        edgesByType = new EnumMap<>(Edge.Type.class);
+        for (Edge.Type type : Edge.Type.values()) {
+            edgesByType.put(type, new HashSet<>());
+        }
+        adjacency = new HashMap<>();
     }
 
     public void addEdge(Vertex from, Vertex to, Edge.Partition partition, Edge.Type type) {
         if (findEdge(from, to, partition).size() == 0) {
             vertices.add(to);
             vertices.add(from);
-            edges.add(new Edge(from, to, partition, type));
+            index(new Edge(from, to, partition, type));
         }
     }
 
@@ -33,11 +41,11 @@ public class Linkage {
     }
 
     public Set<Edge> getRegularEdges() {
-        return edges.stream().filter(Edge::isRegular).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(edgesByType.get(Edge.Type.REGULAR));
     }
 
     public Set<Edge> getLambekEdges() {
-        return edges.stream().filter(Edge::isLambek).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(edgesByType.get(Edge.Type.LAMBEK));
     }
 
     public boolean containsVertex(Vertex vertex) {
@@ -49,23 +57,61 @@ public class Linkage {
     }
 
     public void removeEdge(Edge edge) {
-        edges.remove(edge);
+        if (edges.remove(edge)) {
+            edgesByType.get(edge.getType()).remove(edge);
+            adjacency.get(edge.getSource()).out(edge.getType(), edge.getPartition()).remove(edge);
+            adjacency.get(edge.getTarget()).in(edge.getType(), edge.getPartition()).remove(edge);
+        }
     }
 
     public Set<Edge> getInEdges(Vertex vertex) {
-        return edges.stream().filter(e -> e.getTarget() == vertex).collect(Collectors.toSet());
+        Set<Edge> result = new HashSet<>();
+        Adjacency a = adjacency.get(vertex);
+        if (a != null) {
+            for (int i = 0; i < BUCKETS; i++) {
+                result.addAll(a.in.get(i));
+            }
+        }
+        return result;
     }
 
     public Set<Edge> getOutEdges(Vertex vertex) {
-        return edges.stream().filter(e -> e.getSource() == vertex).collect(Collectors.toSet());
+        Set<Edge> result = new HashSet<>();
+        Adjacency a = adjacency.get(vertex);
+        if (a != null) {
+            for (int i = 0; i < BUCKETS; i++) {
+                result.addAll(a.out.get(i));
+            }
+        }
+        return result;
+    }
+
+    public Set<Edge> getInEdges(Vertex vertex, Edge.Type edgeType) {
+        Set<Edge> result = new HashSet<>();
+        Adjacency a = adjacency.get(vertex);
+        if (a != null) {
+            for (Edge.Partition partition : Edge.Partition.values()) {
+                result.addAll(a.in(edgeType, partition));
+            }
+        }
+        return result;
+    }
+
+    public Set<Edge> getOutEdges(Vertex vertex, Edge.Type edgeType) {
+        Set<Edge> result = new HashSet<>();
+        Adjacency a = adjacency.get(vertex);
+        if (a != null) {
+            for (Edge.Partition partition : Edge.Partition.values()) {
+                result.addAll(a.out(edgeType, partition));
+            }
+        }
+        return result;
     }
 
     public Set<Vertex> getPredecessors(Vertex vertex, Edge.Type edgeType) {
         Set<Vertex> predecessors = new HashSet<>();
-        for (Edge edge : getInEdges(vertex)) {
-            if (edge.getType() == edgeType) {
-                predecessors.add(edge.getSource());
-            }
+        for (Edge edge : getInEdges(vertex, edgeType)) {
+            predecessors.add(edge.getSource());
         }
         return predecessors;
     }
@@ -91,26 +137,44 @@ public class Linkage {
     }
 
     public Set<Edge> getEdges() {
-        return edges;
+        return Collections.unmodifiableSet(edges);
     }
 
     public Set<Edge> findEdge(Vertex from, Vertex to, Edge.Partition partition) {
-        return edges.stream()
-                .filter(e -> e.getPartition() == partition && e.getSource() == from && e.getTarget() == to)
-                .collect(Collectors.toSet());
+        Adjacency a = adjacency.get(from);
+        if (a == null) {
+            return Collections.emptySet();
+        }
+        Set<Edge> result = new HashSet<>();
+        for (Edge.Type type : Edge.Type.values()) {
+            for (Edge e : a.out(type, partition)) {
+                if (e.getTarget() == to) {
+                    result.add(e);
+                }
+            }
+        }
+        return result;
     }
 
+    /**
+     * Edges are immutable, so the copy shares them with the original linkage and only rebuilds the indices.
+     */
     public Linkage copy() {
         Linkage copy = new Linkage();
-        for (Vertex vertex : vertices) {
-            copy.addVertex(vertex);
-        }
-        for (Edge edge : getEdges()) {
-            copy.addEdge(edge.getSource(), edge.getTarget(), edge.getPartition(), edge.getType());
+        copy.vertices.addAll(vertices);
+        for (Edge edge : edges) {
+            copy.index(edge);
         }
         return copy;
     }
 
+    private void index(Edge edge) {
+        edges.add(edge);
+        edgesByType.get(edge.getType()).add(edge);
+        adjacency.computeIfAbsent(edge.getSource(), v -> new Adjacency()).out(edge.getType(), edge.getPartition()).add(edge);
+        adjacency.computeIfAbsent(edge.getTarget(), v -> new Adjacency()).in(edge.getType(), edge.getPartition()).add(edge);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -133,4 +197,32 @@ public class Linkage {
         }
         return sb.toString();
     }
+
+    /**
+     * Incoming and outgoing edges of a single vertex, bucketed by edge type and partition.
+     * A vertex of a term graph has a handful of incident edges at most, so the buckets are plain lists.
+     */
+    private static class Adjacency {
+        private final List<List<Edge>> in = new ArrayList<>(BUCKETS);
+        private final List<List<Edge>> out = new ArrayList<>(BUCKETS);
+
+        Adjacency() {
+            for (int i = 0; i < BUCKETS; i++) {
+                in.add(new ArrayList<>(1));
+                out.add(new ArrayList<>(1));
+            }
+        }
+
+        List<Edge> in(Edge.Type type, Edge.Partition partition) {
+            return in.get(bucket(type, partition));
+        }
+
+        List<Edge> out(Edge.Type type, Edge.Partition partition) {
+            return out.get(bucket(type, partition));
+        }
+
+        private static int bucket(Edge.Type type, Edge.Partition partition) {
+            return type.ordinal() * Edge.Partition.values().length + partition.ordinal();
+        }
+    }
 }
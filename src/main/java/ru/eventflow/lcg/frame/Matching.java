@@ -0,0 +1,187 @@
+package ru.eventflow.lcg.frame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compact representation of the axiomatic links of a frame. Links never cross, so they form a (partial) planar
+ * matching of the atoms, which is stored in balanced-parenthesis form with 2 bits per atom: an atom opens a link,
+ * closes the link opened by the nearest atom which is still open, or is not linked.
+ * <p>
+ * A matching does not repeat the frame, which is only combined with it when a {@link Linkage} or a {@link TermGraph}
+ * is needed, e.g. for validation or output. Matchings are values, they are equal if they link the same atoms.
+ */
+public final class Matching {
+
+    private static final long UNLINKED = 0;
+    private static final long OPEN = 1;
+    private static final long CLOSE = 2;
+
+    private static final int PER_WORD = Long.SIZE / 2;
+
+    private final int size;
+    private final long[] bits;
+
+    private Matching(int size, long[] bits) {
+        this.size = size;
+        this.bits = bits;
+    }
+
+    /**
+     * @param partners the partner of each atom, or -1 if it is not linked
+     * @throws IllegalArgumentException if the links are not symmetric or cross each other
+     */
+    public static Matching of(int[] partners) {
+        long[] bits = new long[(partners.length + PER_WORD - 1) / PER_WORD];
+        int[] stack = new int[partners.length];
+        int top = 0;
+        for (int i = 0; i < partners.length; i++) {
+            int p = partners[i];
+            long symbol;
+            if (p < 0) {
+                symbol = UNLINKED;
+            } else if (p >= partners.length || partners[p] != i || p == i) {
+                throw new IllegalArgumentException("Atom " + i + " is not linked to its partner " + p + ".");
+            } else if (p > i) {
+                symbol = OPEN;
+                stack[top++] = i;
+            } else if (top > 0 && stack[top - 1] == p) {
+                symbol = CLOSE;
+                top--;
+            } else {
+                throw new IllegalArgumentException("The link between " + p + " and " + i + " crosses another link.");
+            }
+            bits[i / PER_WORD] |= symbol << (2 * (i % PER_WORD));
+        }
+        return new Matching(partners.length, bits);
+    }
+
+    /**
+     * @param links axiomatic links between the atoms of a frame
+     */
+    public static Matching of(Frame frame, Collection<Edge> links) {
+        int[] partners = new int[frame.getAxiomatic().size()];
+        Arrays.fill(partners, -1);
+        for (Edge e : links) {
+            int source = frame.getIndex(e.getSource());
+            int target = frame.getIndex(e.getTarget());
+            partners[source] = target;
+            partners[target] = source;
+        }
+        return of(partners);
+    }
+
+    /**
+     * @return the number of atoms
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if every atom is linked
+     */
+    public boolean isPerfect() {
+        for (int i = 0; i < size; i++) {
+            if (symbol(i) == UNLINKED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the partner of each atom, or -1 if it is not linked
+     */
+    public int[] partners() {
+        int[] partners = new int[size];
+        int[] stack = new int[size];
+        int top = 0;
+        for (int i = 0; i < size; i++) {
+            long symbol = symbol(i);
+            if (symbol == OPEN) {
+                stack[top++] = i;
+            } else if (symbol == CLOSE) {
+                int p = stack[--top];
+                partners[p] = i;
+                partners[i] = p;
+            } else {
+                partners[i] = -1;
+            }
+        }
+        return partners;
+    }
+
+    /**
+     * @return the links as regular edges from positive to negative atoms of a frame
+     */
+    public List<Edge> toEdges(Frame frame) {
+        int[] partners = partners();
+        List<Edge> edges = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (i < partners[i]) {
+                Vertex left = frame.getAxiom(i);
+                Vertex right = frame.getAxiom(partners[i]);
+                if (left.getPolarity() == Polarity.POSITIVE) {
+                    edges.add(new Edge(left, right, Edge.Partition.LINKAGE, Edge.Type.REGULAR));
+                } else {
+                    edges.add(new Edge(right, left, Edge.Partition.LINKAGE, Edge.Type.REGULAR));
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * @return a copy of the linkage of a frame extended with the links
+     */
+    public Linkage toLinkage(Frame frame) {
+        Linkage linkage = frame.getLinkage().copy();
+        for (Edge e : toEdges(frame)) {
+            linkage.addEdge(e.getSource(), e.getTarget(), e.getPartition(), e.getType());
+        }
+        return linkage;
+    }
+
+    /**
+     * @return the term graph of a frame extended with the links, the frame is not copied
+     */
+    public TermGraph toGraph(Frame frame) {
+        return TermGraph.of(frame.getLinkage(), toEdges(frame));
+    }
+
+    private long symbol(int i) {
+        return (bits[i / PER_WORD] >>> (2 * (i % PER_WORD))) & 3;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Matching matching = (Matching) o;
+
+        return size == matching.size && Arrays.equals(bits, matching.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(bits);
+    }
+
+    /**
+     * @return the matching in parenthesis notation, '.' for atoms which are not linked
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            long symbol = symbol(i);
+            sb.append(symbol == OPEN ? '(' : symbol == CLOSE ? ')' : '.');
+        }
+        return sb.toString();
+    }
+
+}
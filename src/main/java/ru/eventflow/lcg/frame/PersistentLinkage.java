@@ -0,0 +1,99 @@
+package ru.eventflow.lcg.frame;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An immutable linkage which shares structure with the linkages it was built from.
+ * <p>
+ * It consists of a base linkage (normally the partition of a frame, which is never modified) and a persistent binary
+ * tree of axiomatic edges. Adding an edge or joining two linkages over the same base creates a single node, so a
+ * derived linkage costs O(1) extra memory no matter how many edges it has. A mutable {@link Linkage} or a
+ * {@link TermGraph} is only materialized on demand.
+ */
+public final class PersistentLinkage {
+
+    private final Linkage base;
+    private final Edge edge;
+    private final PersistentLinkage left;
+    private final PersistentLinkage right;
+    private final int size;
+
+    private PersistentLinkage(Linkage base, Edge edge, PersistentLinkage left, PersistentLinkage right) {
+        this.base = base;
+        this.edge = edge;
+        this.left = left;
+        this.right = right;
+        this.size = (edge == null ? 0 : 1) + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+    }
+
+    /**
+     * @param base a linkage which must not be modified afterwards
+     */
+    public static PersistentLinkage of(Linkage base) {
+        return new PersistentLinkage(base, null, null, null);
+    }
+
+    public PersistentLinkage add(Edge edge) {
+        return new PersistentLinkage(base, edge, this, null);
+    }
+
+    public PersistentLinkage join(PersistentLinkage other) {
+        if (other.base != base) {
+            throw new IllegalArgumentException("Linkages over different bases cannot be joined.");
+        }
+        return new PersistentLinkage(base, null, this, other);
+    }
+
+    public Linkage getBase() {
+        return base;
+    }
+
+    /**
+     * @return the number of edges on top of the base
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the edges on top of the base
+     */
+    public List<Edge> getEdges() {
+        List<Edge> edges = new ArrayList<>(size);
+        Deque<PersistentLinkage> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            PersistentLinkage node = stack.pop();
+            if (node.edge != null) {
+                edges.add(node.edge);
+            }
+            if (node.right != null && node.right.size > 0) {
+                stack.push(node.right);
+            }
+            if (node.left != null && node.left.size > 0) {
+                stack.push(node.left);
+            }
+        }
+        return edges;
+    }
+
+    public Linkage toLinkage() {
+        Linkage linkage = base.copy();
+        for (Edge e : getEdges()) {
+            linkage.addEdge(e.getSource(), e.getTarget(), e.getPartition(), e.getType());
+        }
+        return linkage;
+    }
+
+    public TermGraph toGraph() {
+        return TermGraph.of(base, getEdges());
+    }
+
+    @Override
+    public String toString() {
+        return toLinkage().toString();
+    }
+}
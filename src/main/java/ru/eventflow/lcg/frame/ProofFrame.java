@@ -1,8 +1,6 @@
 package ru.eventflow.lcg.frame;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * The proof frame is a representation of the structure of the categories at the periphery of the derivation.
@@ -11,6 +9,8 @@ import java.util.Map;
  *
  * In simple terms, it is a graph obtained from an initial sequent decomposition with a total order imposed on
  * the primitive syntactic categories (vertices).
+ * <p>
+ * The atoms are numbered densely from 0 in the order of the periphery, so the id of an atom is its index.
  */
 public class ProofFrame implements Frame {
 
@@ -21,16 +21,12 @@ public class ProofFrame implements Frame {
      */
     private List<Vertex> axiomatic;
 
-    private Map<Vertex, Integer> indices;
+    private TermGraph graph;
 
     ProofFrame(Linkage linkage, List<Vertex> axiomatic) {
         this.axiomatic = axiomatic;
         this.linkage = linkage;
-
-        this.indices = new HashMap<>();
-        for (int i = 0; i < axiomatic.size(); i++) {
-            this.indices.put(axiomatic.get(i), i);
-        }
+        this.graph = TermGraph.of(linkage);
     }
 
     public List<Vertex> getAxiomatic() {
@@ -46,8 +42,17 @@ public class ProofFrame implements Frame {
         return linkage;
     }
 
+    @Override
+    public TermGraph getGraph() {
+        return graph;
+    }
+
     public int getIndex(Vertex vertex) {
-        return indices.get(vertex);
+        int index = vertex.getId();
+        if (index < 0 || index >= axiomatic.size() || axiomatic.get(index) != vertex) {
+            throw new IllegalArgumentException("Vertex " + vertex + " does not belong to the frame.");
+        }
+        return index;
     }
 
     @Override
@@ -1,12 +1,10 @@
 package ru.eventflow.lcg.frame;
 
 import ru.eventflow.lcg.category.Category;
-import ru.eventflow.lcg.category.ComplexCategory;
-import ru.eventflow.lcg.category.Connective;
-import ru.eventflow.lcg.category.PrimitiveCategory;
 import ru.eventflow.lcg.parser.Sequent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -28,7 +26,7 @@ public class ProofFrameBuilder {
     private ProofFrameBuilder() {
     }
 
-    public static synchronized ProofFrameBuilder builder() {
+    public static ProofFrameBuilder builder() {
         return new ProofFrameBuilder();
     }
 
@@ -37,6 +35,10 @@ public class ProofFrameBuilder {
         return this;
     }
 
+    /**
+     * The frame of each polarized category is compiled once into a {@link FrameTemplate}, so a frame is built
+     * by copying the templates of the antecedent and then of the succedent, which comes last in the total order.
+     */
     public ProofFrame build() {
         if (sequent == null) {
             throw new IllegalStateException("Sequent not set.");
@@ -45,100 +47,49 @@ public class ProofFrameBuilder {
             throw new IllegalStateException("Multiple categories in succedent are not supported.");
         }
 
-        List<Vertex> list = new ArrayList<>();
-        Linkage linkage = new Linkage();
-
-        Category succedent = sequent.getSuccedent().get(0);
-        Vertex s = new Vertex(succedent, Polarity.POSITIVE);
-        process(s, list, linkage);
-        int succedentSize = list.size();
-
+        List<FrameTemplate> templates = new ArrayList<>(sequent.getAntecedent().size() + 1);
         for (Category category : sequent.getAntecedent()) {
-            Vertex a = new Vertex(category, Polarity.NEGATIVE);
-            process(a, list, linkage);
+            templates.add(FrameTemplate.of(category, Polarity.NEGATIVE));
         }
+        templates.add(FrameTemplate.of(sequent.getSuccedent().get(0), Polarity.POSITIVE));
 
-        // move the atoms from the succedent to the end of the list
-        for (int i = 0; i < succedentSize; i++) {
-            Collections.rotate(list, -1);
+        int size = 0;
+        for (FrameTemplate template : templates) {
+            size += template.size();
         }
 
-        return new ProofFrame(linkage, list);
-    }
-
-    private void process(Vertex vertex, List<Vertex> list, Linkage linkage) {
-        Category category = vertex.getCategory();
-        if (category instanceof PrimitiveCategory) {
-            list.add(vertex);
-            if (!linkage.containsVertex(vertex)) {
-                linkage.addVertex(vertex);
-            }
-        } else {
-            ComplexCategory c = (ComplexCategory) category;
-            if (vertex.getPolarity() == Polarity.NEGATIVE) {
-                if (c.getConnective() == Connective.RIGHT_DIVISION) {           //   A/B (-)   =>  A- --> B+
-                    Vertex a = new Vertex(c.getLeft(), Polarity.NEGATIVE);
-                    Vertex b = new Vertex(c.getRight(), Polarity.POSITIVE);
-                    processEdges(linkage, vertex, a, b, Edge.Type.REGULAR);
-                    process(a, list, linkage);
-                    process(b, list, linkage);
-                } else if (c.getConnective() == Connective.LEFT_DIVISION) {    //    A\B (-)   =>  B+ <-- A-
-                    Vertex a = new Vertex(c.getLeft(), Polarity.NEGATIVE);
-                    Vertex b = new Vertex(c.getRight(), Polarity.POSITIVE);
-                    processEdges(linkage, vertex, a, b, Edge.Type.REGULAR);
-                    process(b, list, linkage);
-                    process(a, list, linkage);
-                } else {
-                    throw new IllegalStateException("Multiplicative fragment of L is not supported");
-                }
-            } else {
-                if (c.getConnective() == Connective.RIGHT_DIVISION) {          //    A/B (+)   =>  B- <~~ A+
-                    Vertex a = new Vertex(c.getLeft(), Polarity.POSITIVE);
-                    Vertex b = new Vertex(c.getRight(), Polarity.NEGATIVE);
-                    processEdges(linkage, vertex, a, b, Edge.Type.LAMBEK);
-                    process(b, list, linkage);
-                    process(a, list, linkage);
-                } else if (c.getConnective() == Connective.LEFT_DIVISION) {    //    A\B (+)   =>  A+ ~~> B-
-                    Vertex a = new Vertex(c.getLeft(), Polarity.POSITIVE);
-                    Vertex b = new Vertex(c.getRight(), Polarity.NEGATIVE);
-                    processEdges(linkage, vertex, a, b, Edge.Type.LAMBEK);
-                    process(a, list, linkage);
-                    process(b, list, linkage);
-                } else {
-                    throw new IllegalStateException("Multiplicative fragment of L is not supported");
-                }
-            }
-
-            linkage.removeVertex(vertex);
+        // atoms are numbered by their position in the total order
+        Vertex[] atoms = new Vertex[size];
+        Linkage linkage = new Linkage();
+        int offset = 0;
+        for (FrameTemplate template : templates) {
+            template.instantiate(offset, atoms, linkage);
+            offset += template.size();
         }
-    }
 
-    private void processEdges(Linkage linkage, Vertex parent, Vertex a, Vertex b, Edge.Type type) {
-        linkage.addVertex(a);
-        linkage.addVertex(b);
-        linkage.addEdge(a, b, Edge.Partition.FRAME, type);
-        reattach(linkage, parent, a);
+        return new ProofFrame(linkage, Arrays.asList(atoms));
     }
 
     /**
-     * The neighbourhood of the polarized category on the lhs of each rule is assigned to A
+     * @return a frame without atoms, to be extended with {@link #extend(ProofFrame, Category, Polarity)}
      */
-    private void reattach(Linkage linkage, Vertex vertex, Vertex a) {
-        List<Edge> removal = new ArrayList<>();
+    public static ProofFrame empty() {
+        return new ProofFrame(new Linkage(), Collections.emptyList());
+    }
 
-        for (Edge e : linkage.getInEdges(vertex)) {
-            removal.add(e);
-            linkage.addEdge(e.getSource(), a, Edge.Partition.FRAME, e.getType());
-        }
+    /**
+     * Appends the atoms of a polarized category to the end of the total order. The atoms of the frame are kept,
+     * so whatever was built on top of them, e.g. chart items, remains valid in the extended frame.
+     */
+    public static ProofFrame extend(ProofFrame frame, Category category, Polarity polarity) {
+        FrameTemplate template = FrameTemplate.of(category, polarity);
+        int offset = frame.getAxiomatic().size();
 
-        for (Edge e : linkage.getOutEdges(vertex)) {
-            removal.add(e);
-            linkage.addEdge(a, e.getTarget(), Edge.Partition.FRAME, e.getType());
-        }
+        Vertex[] atoms = frame.getAxiomatic().toArray(new Vertex[offset + template.size()]);
+        Linkage linkage = frame.getLinkage().copy();
+        template.instantiate(offset, atoms, linkage);
 
-        for (Edge e : removal) {
-            linkage.removeEdge(e);
-        }
+        return new ProofFrame(linkage, Arrays.asList(atoms));
     }
 
 }
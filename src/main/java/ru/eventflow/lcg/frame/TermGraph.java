@@ -0,0 +1,238 @@
+package ru.eventflow.lcg.frame;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of a linkage stored as primitive arrays. Vertices are addressed by a dense integer index,
+ * and regular and Lambek edges are kept in compressed sparse rows, both in the forward and in the backward direction.
+ * <p>
+ * If the vertices of the linkage are numbered by a frame, the index of a vertex is its id. Otherwise the vertices
+ * are numbered in the order of iteration of the linkage.
+ */
+public class TermGraph {
+
+    private final Vertex[] vertices;
+    private final Map<Vertex, Integer> indices;
+    private final int order;
+
+    private final Adjacency regular;
+    private final Adjacency regularInverse;
+    private final Adjacency lambek;
+    private final Adjacency lambekInverse;
+
+    private TermGraph(Vertex[] vertices, Map<Vertex, Integer> indices, int order, List<Collection<Edge>> edges) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.order = order;
+
+        int size = vertices.length;
+        AdjacencyBuilder regular = new AdjacencyBuilder(size);
+        AdjacencyBuilder regularInverse = new AdjacencyBuilder(size);
+        AdjacencyBuilder lambek = new AdjacencyBuilder(size);
+        AdjacencyBuilder lambekInverse = new AdjacencyBuilder(size);
+
+        for (Collection<Edge> collection : edges) {
+            for (Edge edge : collection) {
+                int source = indexOf(edge.getSource());
+                int target = indexOf(edge.getTarget());
+                if (source < 0 || target < 0) {
+                    throw new IllegalStateException("Edge " + edge + " is incident to a vertex which is not in the linkage.");
+                }
+                boolean axiomatic = edge.getPartition() == Edge.Partition.LINKAGE;
+                if (edge.isRegular()) {
+                    regular.add(source, target, axiomatic);
+                    regularInverse.add(target, source, axiomatic);
+                } else {
+                    lambek.add(source, target, axiomatic);
+                    lambekInverse.add(target, source, axiomatic);
+                }
+            }
+        }
+
+        this.regular = regular.build();
+        this.regularInverse = regularInverse.build();
+        this.lambek = lambek.build();
+        this.lambekInverse = lambekInverse.build();
+    }
+
+    public static TermGraph of(Linkage linkage) {
+        return of(linkage, Collections.emptyList());
+    }
+
+    /**
+     * Builds a graph of a linkage extended with additional edges between its vertices, without copying the linkage.
+     */
+    public static TermGraph of(Linkage linkage, Collection<Edge> extension) {
+        Set<Vertex> vs = linkage.getVertices();
+        List<Collection<Edge>> edges = Arrays.asList(linkage.getEdges(), extension);
+
+        int max = -1;
+        boolean numbered = true;
+        for (Vertex v : vs) {
+            if (v.getId() < 0) {
+                numbered = false;
+                break;
+            }
+            max = Math.max(max, v.getId());
+        }
+
+        if (numbered) {
+            Vertex[] vertices = new Vertex[max + 1];
+            for (Vertex v : vs) {
+                if (vertices[v.getId()] != null) {
+                    numbered = false; // vertices of different frames are mixed up
+                    break;
+                }
+                vertices[v.getId()] = v;
+            }
+            if (numbered) {
+                return new TermGraph(vertices, null, vs.size(), edges);
+            }
+        }
+
+        Vertex[] vertices = new Vertex[vs.size()];
+        Map<Vertex, Integer> indices = new IdentityHashMap<>();
+        for (Vertex v : vs) {
+            indices.put(v, indices.size());
+            vertices[indices.get(v)] = v;
+        }
+        return new TermGraph(vertices, indices, vs.size(), edges);
+    }
+
+    /**
+     * @return the upper bound of vertex indices, some of the indices below it may be unused
+     */
+    public int size() {
+        return vertices.length;
+    }
+
+    /**
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return order;
+    }
+
+    public boolean contains(int index) {
+        return index >= 0 && index < vertices.length && vertices[index] != null;
+    }
+
+    public Vertex getVertex(int index) {
+        return vertices[index];
+    }
+
+    /**
+     * @return the index of a vertex or -1 if the vertex does not belong to the graph
+     */
+    public int indexOf(Vertex vertex) {
+        if (indices == null) {
+            int id = vertex.getId();
+            return contains(id) && vertices[id] == vertex ? id : -1;
+        }
+        return indices.getOrDefault(vertex, -1);
+    }
+
+    public Adjacency getRegular() {
+        return regular;
+    }
+
+    public Adjacency getRegularInverse() {
+        return regularInverse;
+    }
+
+    public Adjacency getLambek() {
+        return lambek;
+    }
+
+    public Adjacency getLambekInverse() {
+        return lambekInverse;
+    }
+
+    /**
+     * Compressed sparse rows: the neighbours of a vertex {@code v} are stored at positions
+     * {@code begin(v) <= k < end(v)} of a single array. For each neighbour it is also recorded whether the edge
+     * belongs to the axiomatic linkage or to the frame.
+     */
+    public static final class Adjacency {
+        private final int[] offsets;
+        private final int[] neighbours;
+        private final boolean[] axiomatic;
+
+        private Adjacency(int[] offsets, int[] neighbours, boolean[] axiomatic) {
+            this.offsets = offsets;
+            this.neighbours = neighbours;
+            this.axiomatic = axiomatic;
+        }
+
+        public int begin(int v) {
+            return offsets[v];
+        }
+
+        public int end(int v) {
+            return offsets[v + 1];
+        }
+
+        public int degree(int v) {
+            return offsets[v + 1] - offsets[v];
+        }
+
+        public int neighbour(int k) {
+            return neighbours[k];
+        }
+
+        public boolean isAxiomatic(int k) {
+            return axiomatic[k];
+        }
+
+        public boolean contains(int v, int w) {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (neighbours[k] == w) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class AdjacencyBuilder {
+        private final int[] degrees;
+        private int[] sources = new int[8];
+        private int[] targets = new int[8];
+        private boolean[] flags = new boolean[8];
+        private int count = 0;
+
+        AdjacencyBuilder(int size) {
+            this.degrees = new int[size];
+        }
+
+        void add(int source, int target, boolean axiomatic) {
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, count * 2);
+                targets = Arrays.copyOf(targets, count * 2);
+                flags = Arrays.copyOf(flags, count * 2);
+            }
+            sources[count] = source;
+            targets[count] = target;
+            flags[count] = axiomatic;
+            count++;
+            degrees[source]++;
+        }
+
+        Adjacency build() {
+            int[] offsets = new int[degrees.length + 1];
+            for (int v = 0; v < degrees.length; v++) {
+                offsets[v + 1] = offsets[v] + degrees[v];
+            }
+            int[] position = Arrays.copyOf(offsets, degrees.length);
+            int[] neighbours = new int[count];
+            boolean[] axiomatic = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                int k = position[sources[i]]++;
+                neighbours[k] = targets[i];
+                axiomatic[k] = flags[i];
+            }
+            return new Adjacency(offsets, neighbours, axiomatic);
+        }
+    }
+
+}
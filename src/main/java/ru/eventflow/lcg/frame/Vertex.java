@@ -2,23 +2,34 @@ package ru.eventflow.lcg.frame;
 
 import ru.eventflow.lcg.category.Category;
 
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
-
+/**
+ * Vertices have identity semantics. The id of a vertex is its index in the frame it belongs to: a proof frame
+ * numbers its atoms densely from 0 in the order of the periphery. Vertices created outside of a frame are not
+ * numbered and have the id {@link #UNNUMBERED}.
+ */
 public class Vertex {
 
-    private static AtomicInteger counter = new AtomicInteger();
+    public static final int UNNUMBERED = -1;
 
-    private final int id = counter.incrementAndGet();
+    private final int id;
     private final Category category;
     private final Polarity polarity;
     private final Type type;
 
     public Vertex(Category category, Polarity polarity) {
-        this(category, polarity, Type.ATOM);
+        this(UNNUMBERED, category, polarity, Type.ATOM);
     }
 
     public Vertex(Category category, Polarity polarity, Type type) {
+        this(UNNUMBERED, category, polarity, type);
+    }
+
+    public Vertex(int id, Category category, Polarity polarity) {
+        this(id, category, polarity, Type.ATOM);
+    }
+
+    public Vertex(int id, Category category, Polarity polarity, Type type) {
+        this.id = id;
         this.category = category;
         this.polarity = polarity;
         this.type = type;
@@ -40,19 +51,6 @@ public class Vertex {
         return id;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Vertex vertex = (Vertex) o;
-        return id == vertex.id;
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(id);
-    }
-
     @Override
     public String toString() {
         return category + " (" + polarity.getOrthography() + ") " + id;
@@ -0,0 +1,139 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.frame.Polarity;
+import ru.eventflow.lcg.frame.TermGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An abstract term graph of a chart item, i.e. the part of the partial term graph of a span which is still
+ * observable from outside of the span (Fowler 2016).
+ * <p>
+ * A regular path of a complete term graph leaves the span only by means of frame edges and axiomatic links
+ * outside of the span, and all the integrity conditions are stated in terms of paths between endpoints of Lambek
+ * edges. Only the span atoms which are reachable by frame edges from an outside atom or a Lambek endpoint
+ * (entries) and those from which such vertices are reachable (exits) can ever be observed, so two items of the same
+ * span are interchangeable in any complete linkage iff they agree on the reachability of exits from entries.
+ * <p>
+ * The entries and exits only depend on the span, so they are computed once per cell as a {@link Boundary}.
+ */
+class AbstractTermGraph {
+
+    private final long[] bits;
+    private final int hash;
+
+    private AbstractTermGraph(long[] bits) {
+        this.bits = bits;
+        this.hash = Arrays.hashCode(bits);
+    }
+
+    /**
+     * @param closure  the regular reachability of the frame without axiomatic links
+     * @param boundary the boundary of the span of the item
+     * @param partners the links of the item, i.e. the partner of each atom of the frame or -1
+     */
+    static AbstractTermGraph of(TermGraph frame, RegularReachabilityDetector closure, Boundary boundary, int[] partners) {
+        int[] entries = boundary.entries;
+        int[] exits = boundary.exits;
+        long[] bits = new long[(entries.length * exits.length + 63) >>> 6];
+
+        int[] negatives = new int[boundary.j - boundary.i + 1];
+        boolean[] visited = new boolean[negatives.length];
+
+        for (int a = 0; a < entries.length; a++) {
+            // negative span atoms reachable from an entry through the links of the span
+            Arrays.fill(visited, false);
+            int count = 0;
+            negatives[count++] = partners[entries[a]];
+            visited[partners[entries[a]] - boundary.i] = true;
+            for (int k = 0; k < count; k++) {
+                for (int p = boundary.i; p <= boundary.j; p++) {
+                    if (frame.getVertex(p).getPolarity() == Polarity.POSITIVE && !visited[partners[p] - boundary.i]
+                            && closure.reachable(negatives[k], p)) {
+                        visited[partners[p] - boundary.i] = true;
+                        negatives[count++] = partners[p];
+                    }
+                }
+            }
+
+            for (int b = 0; b < exits.length; b++) {
+                boolean reachable = closure.reachable(entries[a], exits[b]);
+                for (int k = 0; k < count && !reachable; k++) {
+                    reachable = closure.reachable(negatives[k], exits[b]);
+                }
+                if (reachable) {
+                    int bit = a * exits.length + b;
+                    bits[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+
+        return new AbstractTermGraph(bits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AbstractTermGraph that = (AbstractTermGraph) o;
+        return hash == that.hash && Arrays.equals(bits, that.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * The entries and the exits of a span [i, j].
+     */
+    static class Boundary {
+        private final int i;
+        private final int j;
+        private final int[] entries;
+        private final int[] exits;
+
+        private Boundary(int i, int j, int[] entries, int[] exits) {
+            this.i = i;
+            this.j = j;
+            this.entries = entries;
+            this.exits = exits;
+        }
+
+        static Boundary of(TermGraph frame, RegularReachabilityDetector closure, int i, int j) {
+            // the vertices which are observable from outside of the span
+            List<Integer> observable = new ArrayList<>();
+            for (int v = 0; v < frame.size(); v++) {
+                if (v < i || v > j || frame.getLambek().degree(v) > 0 || frame.getLambekInverse().degree(v) > 0) {
+                    observable.add(v);
+                }
+            }
+
+            List<Integer> entries = new ArrayList<>();
+            List<Integer> exits = new ArrayList<>();
+            for (int v = i; v <= j; v++) {
+                boolean positive = frame.getVertex(v).getPolarity() == Polarity.POSITIVE;
+                for (int r : observable) {
+                    if (positive ? closure.reachable(r, v) : closure.reachable(v, r)) {
+                        (positive ? entries : exits).add(v);
+                        break;
+                    }
+                }
+            }
+
+            return new Boundary(i, j, toArray(entries), toArray(exits));
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int k = 0; k < array.length; k++) {
+                array[k] = list.get(k);
+            }
+            return array;
+        }
+    }
+
+}
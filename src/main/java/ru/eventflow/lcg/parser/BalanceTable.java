@@ -0,0 +1,81 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.category.Category;
+import ru.eventflow.lcg.frame.Polarity;
+import ru.eventflow.lcg.frame.Vertex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every atom of a completely linked span is linked to an atom of the same category and of the opposite polarity
+ * in the span, so a span can only be completely linked if each category has as many positive atoms in it as
+ * negative ones. This implies that the span has an even length.
+ * <p>
+ * The balance of a span is the difference of two prefix vectors of per-category counts, so prefixes with equal
+ * vectors are numbered by the same class and a span is balanced if the prefixes before and after it are of the same
+ * class, which is checked in O(1).
+ */
+final class BalanceTable {
+
+    private final int[] classes;
+
+    private BalanceTable(int[] classes) {
+        this.classes = classes;
+    }
+
+    static BalanceTable of(List<Vertex> atoms) {
+        Map<Category, Integer> categories = new HashMap<>();
+        for (Vertex atom : atoms) {
+            categories.putIfAbsent(atom.getCategory(), categories.size());
+        }
+
+        int[] counts = new int[categories.size()];
+        int[] classes = new int[atoms.size() + 1];
+        Map<Counts, Integer> ids = new HashMap<>();
+        ids.put(new Counts(counts.clone()), 0);
+        for (int p = 0; p < atoms.size(); p++) {
+            Vertex atom = atoms.get(p);
+            counts[categories.get(atom.getCategory())] += atom.getPolarity() == Polarity.POSITIVE ? 1 : -1;
+            Counts key = new Counts(counts.clone());
+            Integer id = ids.putIfAbsent(key, ids.size());
+            classes[p + 1] = id != null ? id : ids.size() - 1;
+        }
+        return new BalanceTable(classes);
+    }
+
+    /**
+     * @return true if every category has as many positive atoms as negative ones in the span [l, r]
+     */
+    boolean isBalanced(int l, int r) {
+        return classes[l] == classes[r + 1];
+    }
+
+    private static final class Counts {
+        private final int[] counts;
+        private final int hash;
+
+        Counts(int[] counts) {
+            this.counts = counts;
+            this.hash = Arrays.hashCode(counts);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Counts that = (Counts) o;
+
+            return hash == that.hash && Arrays.equals(counts, that.counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.dto.ParseDTO;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parses a sequence of sequents on a work-stealing pool and returns the results in input order.
+ * <p>
+ * At most {@code window} sequents are parsed at a time, and a sequent is submitted as soon as any of them is done.
+ * The cost of a parse varies a lot between sequents, so the results behind a slow sequent are held in a reorder
+ * buffer of at most {@code buffer} results, and the pool goes on parsing until the buffer is full.
+ * <p>
+ * The input is consumed lazily, and an exception thrown by a single parse is reported in its result rather than
+ * failing the batch. Closing the stream cancels the sequents which are still in flight, so a stream which is not
+ * consumed to the end should be closed, e.g. in a try-with-resources statement.
+ */
+public class BatchParser {
+
+    private final LCGParser parser;
+    private final ForkJoinPool pool;
+    private final int window;
+    private final int buffer;
+
+    /**
+     * The reorder buffer is as large as the window.
+     *
+     * @param parser a parser which is safe to use from several threads at once
+     * @param window the maximal number of sequents parsed at a time
+     */
+    public BatchParser(LCGParser parser, ForkJoinPool pool, int window) {
+        this(parser, pool, window, window);
+    }
+
+    /**
+     * @param buffer the maximal number of results held back behind a sequent which is still parsed
+     */
+    public BatchParser(LCGParser parser, ForkJoinPool pool, int window, int buffer) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window size must be positive.");
+        }
+        if (buffer < 0) {
+            throw new IllegalArgumentException("Buffer size must not be negative.");
+        }
+        this.parser = parser;
+        this.pool = pool;
+        this.window = window;
+        this.buffer = buffer;
+    }
+
+    public Stream<Result> parse(Iterable<Sequent> sequents) {
+        return parse(sequents.iterator());
+    }
+
+    public Stream<Result> parse(Stream<Sequent> sequents) {
+        return parse(sequents.iterator());
+    }
+
+    private Stream<Result> parse(Iterator<Sequent> sequents) {
+        Results results = new Results(sequents);
+        Spliterator<Result> spliterator = Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(results::cancel);
+    }
+
+    /**
+     * Only the consuming thread submits sequents and updates the results. A task passes its outcome back through
+     * a queue, so the consumer wakes up whenever any sequent is done.
+     */
+    private class Results implements Iterator<Result> {
+        private final Iterator<Sequent> sequents;
+        // the results which were submitted but not returned yet, in input order
+        private final Deque<Result> pending = new ArrayDeque<>();
+        private final BlockingQueue<Runnable> outcomes = new LinkedBlockingQueue<>();
+        private int running = 0;
+        private long index = 0;
+        private boolean cancelled = false;
+
+        Results(Iterator<Sequent> sequents) {
+            this.sequents = sequents;
+        }
+
+        @Override
+        public boolean hasNext() {
+            submit();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Result next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Result head = pending.peek();
+            while (head.task != null) {
+                try {
+                    outcomes.take().run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    head.complete(null, e);
+                    return head;
+                }
+                submit();
+            }
+            pending.poll();
+            return head;
+        }
+
+        private void submit() {
+            while (!cancelled && running < window && pending.size() < window + buffer && sequents.hasNext()) {
+                Sequent sequent = sequents.next();
+                Result result = new Result(index++, sequent);
+                result.task = pool.submit(() -> {
+                    ParseDTO parse = null;
+                    Throwable error = null;
+                    try {
+                        parse = parser.parse(sequent);
+                    } catch (Throwable e) {
+                        error = e;
+                    }
+                    ParseDTO p = parse;
+                    Throwable t = error;
+                    outcomes.add(() -> {
+                        running--;
+                        result.complete(p, t);
+                    });
+                });
+                pending.add(result);
+                running++;
+            }
+        }
+
+        /**
+         * The sequents which were not started yet are never parsed, the running ones are left to finish.
+         */
+        void cancel() {
+            cancelled = true;
+            for (Result result : pending) {
+                if (result.task != null) {
+                    result.task.cancel(true);
+                }
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * The outcome of parsing a single sequent: either a parse or the exception the parser failed with.
+     */
+    public static class Result {
+        private final long index;
+        private final Sequent sequent;
+        private ForkJoinTask<?> task;
+        private ParseDTO parse;
+        private Throwable error;
+
+        private Result(long index, Sequent sequent) {
+            this.index = index;
+            this.sequent = sequent;
+        }
+
+        private void complete(ParseDTO parse, Throwable error) {
+            this.parse = parse;
+            this.error = error;
+            task = null;
+        }
+
+        /**
+         * @return the position of the sequent in the input
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        public Sequent getSequent() {
+            return sequent;
+        }
+
+        /**
+         * @return the parse, or null if the parser failed
+         */
+        public ParseDTO getParse() {
+            return parse;
+        }
+
+        /**
+         * @return the exception the parser failed with, or null
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.category.Category;
+import ru.eventflow.lcg.category.ComplexCategory;
+import ru.eventflow.lcg.dto.CategoryDTO;
+import ru.eventflow.lcg.dto.LinkageDTO;
+import ru.eventflow.lcg.dto.ParseDTO;
+import ru.eventflow.lcg.dto.SequentDTO;
+
+import java.util.*;
+
+/**
+ * A decorator which keeps the parses of the most recently used sequents in a bounded LRU cache.
+ * <p>
+ * Parses only depend on which primitive categories are equal, so sequents are cached under a canonical key, in which
+ * the primitive categories are numbered in the order of their first occurrence, e.g. {@code A/B, B => A} and
+ * {@code N/NP, NP => N} share an entry. A parse is cached with the symbols of its atoms replaced by these numbers,
+ * which are renamed back for each sequent. The key and the cached parse are plain strings, so no categories are
+ * created for the canonical form.
+ * <p>
+ * Only {@link #parse(Sequent)} fills the cache. The other methods answer from the cache on a hit, but pass a miss on
+ * to the parser without caching it, since no parse is built for them.
+ * <p>
+ * The linkages of a cached parse are shared between the results and are read-only. The cache is thread-safe,
+ * a parse is computed outside of the lock, so concurrent misses of the same sequent may parse it more than once.
+ */
+public class CachingLCGParser implements LCGParser {
+
+    private final OutputBuilder outputBuilder = new OutputBuilder();
+    private final LCGParser parser;
+    private final int capacity;
+    private final Map<String, ParseDTO> cache;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity the maximal number of cached sequents
+     */
+    public CachingLCGParser(LCGParser parser, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.parser = parser;
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<String, ParseDTO>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParseDTO> eldest) {
+                if (size() > CachingLCGParser.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public ParseDTO parse(Sequent sequent) {
+        Canonical canonical = new Canonical(sequent);
+        ParseDTO parse = lookup(canonical.key);
+        if (parse == null) {
+            parse = readOnly(canonical.rename(parser.parse(sequent)));
+            store(canonical.key, parse);
+        }
+        return canonical.restore(sequent, parse);
+    }
+
+    /**
+     * A miss is passed on to the parser and is not cached, since no parse is built.
+     */
+    @Override
+    public boolean recognize(Sequent sequent) {
+        ParseDTO parse = lookup(new Canonical(sequent).key);
+        return parse != null ? !parse.getParses().isEmpty() : parser.recognize(sequent);
+    }
+
+    /**
+     * A miss is passed on to the parser and is not cached, since no parse is built.
+     */
+    @Override
+    public long countParses(Sequent sequent) {
+        ParseDTO parse = lookup(new Canonical(sequent).key);
+        return parse != null ? parse.getParses().size() : parser.countParses(sequent);
+    }
+
+    /**
+     * A miss is passed on to the parser and is not cached, so the linkages are still streamed.
+     */
+    @Override
+    public Iterator<LinkageDTO> iterate(Sequent sequent) {
+        ParseDTO parse = lookup(new Canonical(sequent).key);
+        return parse != null ? parse.getParses().iterator() : parser.iterate(sequent);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of cached sequents
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private synchronized ParseDTO lookup(String key) {
+        ParseDTO parse = cache.get(key);
+        if (parse != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return parse;
+    }
+
+    private synchronized void store(String key, ParseDTO parse) {
+        cache.put(key, parse);
+    }
+
+    private static ParseDTO readOnly(ParseDTO parse) {
+        List<LinkageDTO> parses = new ArrayList<>(parse.getParses().size());
+        for (LinkageDTO linkage : parse.getParses()) {
+            parses.add(new LinkageDTO(Collections.unmodifiableList(linkage.getLinks())));
+        }
+        return new ParseDTO(parse.getSequent(), Collections.unmodifiableList(parse.getCategories()),
+                Collections.unmodifiableList(parses), parse.getRejectedBy());
+    }
+
+    /**
+     * The canonical key of a sequent, in which its primitive categories are numbered 0, 1, ... in the order of
+     * their first occurrence, and the renaming of the atom symbols in both directions.
+     */
+    private class Canonical {
+        private final Map<String, String> names = new HashMap<>();
+        private final Map<String, String> symbols = new HashMap<>();
+        private final String key;
+
+        Canonical(Sequent sequent) {
+            StringBuilder sb = new StringBuilder();
+            append(sequent.getAntecedent(), sb);
+            sb.append("=>");
+            append(sequent.getSuccedent(), sb);
+            this.key = sb.toString();
+        }
+
+        /**
+         * @return the parse with the symbols of its atoms replaced by their numbers
+         */
+        ParseDTO rename(ParseDTO parse) {
+            return withSymbols(parse, parse.getSequent(), names);
+        }
+
+        /**
+         * @return the cached parse with the symbols of the original sequent
+         */
+        ParseDTO restore(Sequent sequent, ParseDTO parse) {
+            return withSymbols(parse, outputBuilder.build(sequent), symbols);
+        }
+
+        private ParseDTO withSymbols(ParseDTO parse, SequentDTO sequent, Map<String, String> renaming) {
+            List<CategoryDTO> categories = new ArrayList<>(parse.getCategories().size());
+            for (CategoryDTO category : parse.getCategories()) {
+                categories.add(new CategoryDTO(category.getIndex(), renaming.get(category.getCategory()), category.getPolarity()));
+            }
+            return new ParseDTO(sequent, categories, parse.getParses(), parse.getRejectedBy());
+        }
+
+        private void append(List<Category> categories, StringBuilder sb) {
+            for (int i = 0; i < categories.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                append(categories.get(i), sb);
+            }
+        }
+
+        private void append(Category category, StringBuilder sb) {
+            if (category instanceof ComplexCategory) {
+                ComplexCategory c = (ComplexCategory) category;
+                sb.append('(');
+                append(c.getLeft(), sb);
+                sb.append(c.getConnective().getSymbol());
+                append(c.getRight(), sb);
+                sb.append(')');
+                return;
+            }
+            String name = names.get(category.getSymbol());
+            if (name == null) {
+                name = String.valueOf(names.size());
+                names.put(category.getSymbol(), name);
+                symbols.put(name, category.getSymbol());
+            }
+            sb.append(name);
+        }
+    }
+
+}
@@ -0,0 +1,472 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.frame.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The state of a single parse of {@link ChartLCGParser}: a frame and the cells of its chart.
+ * <p>
+ * A chart is filled in by span length. Cells of the same length are independent of each other, so they can be
+ * filled in on a {@link ForkJoinPool}, one task per cell.
+ * <p>
+ * Cells are kept in a triangular array, so looking up a cell allocates nothing, and the buffers of the size of the
+ * frame which are needed for each candidate item are reused from a per-thread {@link Scratch}.
+ */
+class Chart {
+
+    private final Frame frame;
+    private final TermGraph graph;
+    /**
+     * the cells in a triangular array, see {@link #index(int, int)}, or null for empty cells
+     */
+    private final List<Item>[] cells;
+    private final boolean verbose;
+
+    /**
+     * the cells which end at each atom with their bracketed items, the right operands of adjoining, in the order
+     * the cells were filled in. A cell is only added by the task which fills it in and only read by the tasks of
+     * longer spans, so the lists need no synchronization.
+     */
+    private final List<List<Block>> ending;
+
+    private final PersistentLinkage base;
+    private final DynamicTopologicalOrder order;
+    private final BalanceTable balance;
+
+    private final boolean abstractTermGraphs;
+    private final RegularReachabilityDetector closure;
+    private final AbstractTermGraph.Boundary[] boundaries;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool a pool to fill in the cells of the same span length in parallel, or null
+     */
+    Chart(Frame frame, boolean abstractTermGraphs, ForkJoinPool pool, boolean verbose) {
+        // all items share the frame partition and only keep their own axiomatic links on top of it
+        this(frame, abstractTermGraphs, pool, verbose, PersistentLinkage.of(frame.getLinkage()), noCells(),
+                new ArrayList<>(), new AbstractTermGraph.Boundary[0]);
+    }
+
+    private Chart(Frame frame, boolean abstractTermGraphs, ForkJoinPool pool, boolean verbose, PersistentLinkage base,
+                  List<Item>[] cells, List<List<Block>> ending, AbstractTermGraph.Boundary[] boundaries) {
+        int size = frame.getAxiomatic().size();
+        this.frame = frame;
+        this.graph = frame.getGraph();
+        // the rows of the triangle are the right endpoints, so a longer frame only appends rows
+        this.cells = Arrays.copyOf(cells, index(0, size));
+        this.ending = ending;
+        while (ending.size() < frame.getAxiomatic().size()) {
+            ending.add(new ArrayList<>());
+        }
+        this.abstractTermGraphs = abstractTermGraphs;
+        this.pool = pool;
+        this.verbose = verbose;
+        this.closure = abstractTermGraphs ? new RegularReachabilityDetector(graph, false) : null;
+        this.boundaries = abstractTermGraphs ? Arrays.copyOf(boundaries, index(0, size)) : null;
+        this.base = base;
+
+        // the frame is acyclic by construction, each item carries an order extended with its own links
+        this.order = DynamicTopologicalOrder.of(graph);
+
+        this.balance = BalanceTable.of(frame.getAxiomatic());
+    }
+
+    /**
+     * The frame must extend the frame of this chart with atoms at the end of the total order. These atoms are not
+     * connected to the others by frame edges, so neither the cells of this chart nor the boundaries of their spans
+     * depend on them, and the extended chart starts with a copy of the cells. The lists of cells ending at the atoms
+     * of this chart are complete, so they are shared. The items of the cells keep the base
+     * linkage of the frame they were built for, so they are validated against the extended frame.
+     *
+     * @return a chart of the extended frame in which only the cells ending at the new atoms are to be filled in
+     */
+    Chart extend(Frame frame) {
+        return new Chart(frame, abstractTermGraphs, pool, verbose, base, cells, new ArrayList<>(ending),
+                boundaries == null ? new AbstractTermGraph.Boundary[0] : boundaries);
+    }
+
+    /**
+     * Generic arrays cannot be created, this is the only unchecked conversion of the cells.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Item>[] noCells() {
+        return (List<Item>[]) new List<?>[0];
+    }
+
+    Frame getFrame() {
+        return frame;
+    }
+
+    /**
+     * Fills in the chart.
+     *
+     * @return the items which span the whole frame
+     */
+    List<Item> fill() {
+        return fill(0);
+    }
+
+    /**
+     * Fills in the cells which end at an atom from a given one on, the other cells must be filled in already.
+     *
+     * @return the items which span the whole frame
+     */
+    List<Item> fill(int from) {
+        int size = frame.getAxiomatic().size();
+
+        // a cell only depends on shorter spans, so all the cells of the same length form a wave of independent tasks,
+        // spans which are not balanced (e.g. of odd length) cannot be completely linked and stay empty
+        for (int length = 2; length <= size; length += 2) {
+            int n = length;
+            int first = Math.max(0, from - n + 1);
+            if (pool == null) {
+                for (int l = first; l + n <= size; l++) {
+                    if (balance.isBalanced(l, l + n - 1)) {
+                        fill(l, l + n - 1);
+                    }
+                }
+            } else {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (int l = first; l + n <= size; l++) {
+                    int i = l;
+                    if (balance.isBalanced(i, i + n - 1)) {
+                        tasks.add(ForkJoinTask.adapt(() -> fill(i, i + n - 1)));
+                    }
+                }
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            }
+        }
+
+        List<Item> results = get(0, size - 1);
+
+        if (verbose) {
+            System.out.println("DEBUG: results size = " + results.size());
+        }
+
+        return results;
+    }
+
+    /**
+     * Fills in a cell from the cells of shorter spans inside it. The cell is only published when it is complete,
+     * so a task never observes a cell which is being filled in by another task.
+     */
+    private void fill(int l, int r) {
+        List<Item> cell = new ArrayList<>();
+        Map<ClassKey, Item> classes = abstractTermGraphs ? new HashMap<>() : null;
+
+        // bracketing: a link around a completely linked span, or a link between adjacent atoms
+        Edge edge = attemptLink(l, r);
+        if (edge != null) {
+            if (r == l + 1) {
+                put(cell, classes, link(l, r, base, order, edge));
+            } else {
+                for (Item item : get(l + 1, r - 1)) {
+                    Item bracketed = link(l, r, item.linkage, item.order, edge);
+                    if (bracketed != null) {
+                        bracketed.inner = item;
+                    }
+                    put(cell, classes, bracketed);
+                }
+            }
+        }
+
+        // adjoining: normal form requires that a concatenation of bracketed items is built from left to right,
+        // i.e. an adjoined item is never the right operand, so that every linkage is derived exactly once.
+        // The right operands are the bracketed items of the non-empty cells ending at r, shortest last
+        List<Block> blocks = ending.get(r);
+        for (int k = blocks.size() - 1; k >= 0; k--) {
+            Block block = blocks.get(k);
+            int m = block.i - 1;
+            // the span is balanced, so either both parts are balanced or neither is
+            if (m <= l || !balance.isBalanced(l, m)) {
+                continue;
+            }
+            List<Item> ls = get(l, m);
+            for (Item right : block.items) {
+                for (Item left : ls) {
+                    put(cell, classes, adjoin(left, right));
+                }
+            }
+        }
+
+        if (!cell.isEmpty()) {
+            cells[index(l, r)] = cell;
+
+            List<Item> bracketed = new ArrayList<>();
+            for (Item item : cell) {
+                if (!item.adjoined) {
+                    bracketed.add(item);
+                }
+            }
+            if (!bracketed.isEmpty()) {
+                ending.get(r).add(new Block(l, bracketed));
+            }
+        }
+    }
+
+    private List<Item> get(int leftIndex, int rightIndex) {
+        List<Item> cell = cells[index(leftIndex, rightIndex)];
+        return cell != null ? cell : Collections.emptyList();
+    }
+
+    /**
+     * @return the position of the cell of the span [l, r] in a triangular array, row by row of right endpoints;
+     * index(0, n) is the size of the array for n atoms
+     */
+    private static int index(int l, int r) {
+        return r * (r + 1) / 2 + l;
+    }
+
+    /**
+     * Items which would contain a regular cycle are not created, so null is ignored here.
+     */
+    private void put(List<Item> cell, Map<ClassKey, Item> classes, Item item) {
+        if (item == null) {
+            return;
+        }
+
+        if (abstractTermGraphs) {
+            // only the task which fills in the cell sets its boundary
+            AbstractTermGraph.Boundary boundary = boundaries[index(item.i, item.j)];
+            if (boundary == null) {
+                boundary = AbstractTermGraph.Boundary.of(graph, closure, item.i, item.j);
+                boundaries[index(item.i, item.j)] = boundary;
+            }
+            AbstractTermGraph atg = AbstractTermGraph.of(graph, closure, boundary, partners(item.linkage));
+
+            // the normal form distinguishes blocks and concatenations, so they are never merged with each other
+            Item representative = classes.putIfAbsent(new ClassKey(atg, item.adjoined), item);
+            if (representative != null) {
+                representative.alternatives.add(item);
+                return;
+            }
+        }
+
+        cell.add(item);
+    }
+
+    /**
+     * Adds an item and the items it was built from to a forest, the derivations of a node are those of the members
+     * of the class of the item.
+     *
+     * @return the node of the item
+     */
+    int node(ParseForest forest, Item item, Map<Item, Integer> nodes) {
+        Integer node = nodes.get(item);
+        if (node != null) {
+            return node;
+        }
+
+        List<Item> members = new ArrayList<>();
+        members.add(item);
+        members.addAll(item.alternatives);
+
+        // the nodes an item is built from go first
+        int[][] children = new int[members.size()][];
+        for (int k = 0; k < members.size(); k++) {
+            Item member = members.get(k);
+            if (member.adjoined) {
+                children[k] = new int[]{node(forest, member.left, nodes), node(forest, member.right, nodes)};
+            } else if (member.inner != null) {
+                children[k] = new int[]{node(forest, member.inner, nodes)};
+            }
+        }
+
+        node = forest.addNode();
+        for (int k = 0; k < members.size(); k++) {
+            Item member = members.get(k);
+            if (member.adjoined) {
+                forest.addAdjoin(node, children[k][0], children[k][1]);
+            } else if (member.inner != null) {
+                forest.addBracket(node, member.link, children[k][0]);
+            } else {
+                forest.addLeaf(node, member.link);
+            }
+        }
+
+        nodes.put(item, node);
+        return node;
+    }
+
+    /**
+     * Extends a linkage with an axiomatic link.
+     *
+     * @return a new item, or null if the link closes a regular cycle
+     */
+    private Item link(int i, int j, PersistentLinkage linkage, DynamicTopologicalOrder order, Edge edge) {
+        int u = edge.getSource().getId();
+        int v = edge.getTarget().getId();
+
+        // a link along a Lambek edge fails the T(2)-addition check for good, since links never enter positive atoms,
+        // and the check is not reflected by the abstract term graph, so such items are dropped right away
+        if (abstractTermGraphs && graph.getLambek().contains(u, v) && graph.getRegularInverse().degree(u) > 0) {
+            return null;
+        }
+
+        // the order of an item of a shorter frame is extended first
+        order = order.extend(graph);
+        if (!order.precedes(u, v)) {
+            order = order.insert(u, v, graph, partners(linkage));
+            if (order == null) {
+                return null;
+            }
+        }
+        Item item = new Item(i, j, linkage.add(edge), order, false);
+        item.link = edge;
+        return item;
+    }
+
+    /**
+     * The links of the left item are inserted into the order of the right one. Only if some link disagrees with
+     * that order, the links are materialized and the order is updated.
+     *
+     * @return a new item, or null if the union of the two linkages contains a regular cycle
+     */
+    private Item adjoin(Item left, Item right) {
+        DynamicTopologicalOrder order = right.order.extend(graph);
+        List<Edge> links = left.linkage.getEdges();
+        int[] partners = null;
+
+        for (int k = 0; k < links.size(); k++) {
+            int u = links.get(k).getSource().getId();
+            int v = links.get(k).getTarget().getId();
+            if (!order.precedes(u, v)) {
+                if (partners == null) {
+                    partners = partners(right.linkage);
+                    for (Edge e : links.subList(0, k)) {
+                        partners[e.getSource().getId()] = e.getTarget().getId();
+                        partners[e.getTarget().getId()] = e.getSource().getId();
+                    }
+                }
+                order = order.insert(u, v, graph, partners);
+                if (order == null) {
+                    return null;
+                }
+            }
+            if (partners != null) {
+                partners[u] = v;
+                partners[v] = u;
+            }
+        }
+
+        Item item = new Item(left.i, right.j, left.linkage.join(right.linkage), order, true);
+        item.left = left;
+        item.right = right;
+        return item;
+    }
+
+    /**
+     * @return the partners of the atoms in a buffer of this thread, valid until the next call
+     */
+    private int[] partners(PersistentLinkage linkage) {
+        int[] partners = Scratch.get().partners(graph.size());
+        for (Edge e : linkage.getEdges()) {
+            partners[e.getSource().getId()] = e.getTarget().getId();
+            partners[e.getTarget().getId()] = e.getSource().getId();
+        }
+        return partners;
+    }
+
+    private Edge attemptLink(int l, int r) {
+        Vertex left = frame.getAxiom(l);
+        Vertex right = frame.getAxiom(r);
+
+        if (left.getCategory() == right.getCategory() && left.getPolarity() != right.getPolarity()) {
+            // a regular edge is from positive to negative
+            if (left.getPolarity() == Polarity.POSITIVE) {
+                return new Edge(left, right, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+            } else {
+                return new Edge(right, left, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+            }
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * The bracketed items of a cell which starts at i.
+     */
+    private static class Block {
+        private final int i;
+        private final List<Item> items;
+
+        Block(int i, List<Item> items) {
+            this.i = i;
+            this.items = items;
+        }
+    }
+
+    private static class ClassKey {
+        private AbstractTermGraph atg;
+        private boolean adjoined;
+
+        ClassKey(AbstractTermGraph atg, boolean adjoined) {
+            this.atg = atg;
+            this.adjoined = adjoined;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ClassKey classKey = (ClassKey) o;
+
+            if (adjoined != classKey.adjoined) return false;
+            return atg.equals(classKey.atg);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = atg.hashCode();
+            result = 31 * result + (adjoined ? 1 : 0);
+            return result;
+        }
+    }
+
+    /**
+     * Derivations are unique, so items are never compared, the parse forest keeps track of them by identity.
+     */
+    static class Item {
+        int i;
+        int j;
+        PersistentLinkage linkage;
+        DynamicTopologicalOrder order;
+
+        /**
+         * whether the item is a concatenation of two items rather than a single bracketed item
+         */
+        boolean adjoined;
+
+        /**
+         * the derivation of the item: the last link and the bracketed item (if any), or the adjoined items
+         */
+        Edge link;
+        Item inner;
+        Item left;
+        Item right;
+
+        /**
+         * the items merged into this one, only used with abstract term graphs
+         */
+        List<Item> alternatives = new ArrayList<>();
+
+        Item(int i, int j, PersistentLinkage linkage, DynamicTopologicalOrder order, boolean adjoined) {
+            this.i = i;
+            this.j = j;
+            this.linkage = linkage;
+            this.order = order;
+            this.adjoined = adjoined;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + i + ", " + j + "]";
+        }
+    }
+
+}
@@ -1,215 +1,326 @@
 package ru.eventflow.lcg.parser;
 
+import ru.eventflow.lcg.category.Category;
+import ru.eventflow.lcg.dto.LinkageDTO;
 import ru.eventflow.lcg.dto.ParseDTO;
 import ru.eventflow.lcg.frame.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A simplistic adaptation of Fowler's LCG parser which uses dynamic programming with bracketing and adjoining subroutines
- * to build all possible planar linkages for a given frame. No graph minimizations are attempted.
+ * to build all possible planar linkages for a given frame. By default no graph minimizations are attempted.
  * <p>
- * Planarity is maintained by construction, so no additional checks are required. But we need to deduplicate the result set.
+ * Planarity is maintained by construction, so no additional checks are required. Spurious ambiguity is eliminated
+ * at the source: the recurrence is restricted to a normal form, in which a span is either a single bracketed item or
+ * a left-branching concatenation of bracketed items, so every planar linkage is derived exactly once.
+ * <p>
+ * Optionally, items of a cell are merged if their {@link AbstractTermGraph}s are equal. Only one representative
+ * of each class takes part in further derivations and is validated, the other members are kept as alternatives.
+ * <p>
+ * The integral linkages are returned as a {@link ParseForest} of items, in which the derivations of a node are
+ * those of the item and its alternatives. Results are enumerated from the forest as {@link Matching}s and are only
+ * combined with the frame for output.
+ * <p>
+ * Sequents which fail a {@link PrefilterPipeline} check are rejected before the chart is built.
+ * <p>
+ * The chart is filled in by span length, optionally on a {@link ForkJoinPool}, and complete linkages are optionally
+ * validated on an {@link Executor}. A {@link Session} fills in the chart incrementally, as antecedent categories
+ * arrive.
+ * <p>
+ * A parser only holds its configuration, which never changes, and the state of each parse is kept in its own
+ * {@link Chart}, so a single instance can be shared by any number of threads and all the parse methods are
+ * thread-safe.
  */
 public class ChartLCGParser implements LCGParser {
 
-    private Map<Key, Set<Item>> chart;
-    private Frame frame;
-    private OutputBuilder outputBuilder = new OutputBuilder();
-    private boolean verbose;
+    private final OutputBuilder outputBuilder = new OutputBuilder();
+    private final boolean verbose;
+    private final boolean abstractTermGraphs;
+    private final ForkJoinPool pool;
+    private final Executor executor;
+    private final PrefilterPipeline prefilters;
 
     public ChartLCGParser(boolean verbose) {
+        this(verbose, false);
+    }
+
+    /**
+     * @param abstractTermGraphs whether items with equal abstract term graphs are merged
+     */
+    public ChartLCGParser(boolean verbose, boolean abstractTermGraphs) {
+        this(verbose, abstractTermGraphs, null);
+    }
+
+    /**
+     * @param pool a pool to fill in the cells of the same span length in parallel, or null to fill in the chart
+     *             sequentially
+     */
+    public ChartLCGParser(boolean verbose, boolean abstractTermGraphs, ForkJoinPool pool) {
+        this(verbose, abstractTermGraphs, pool, null);
+    }
+
+    /**
+     * @param executor an executor to validate complete linkages in parallel, or null to validate them sequentially
+     */
+    public ChartLCGParser(boolean verbose, boolean abstractTermGraphs, ForkJoinPool pool, Executor executor) {
+        this(verbose, abstractTermGraphs, pool, executor, PrefilterPipeline.standard());
+    }
+
+    /**
+     * @param prefilters the checks a sequent must pass before the chart is filled in
+     */
+    public ChartLCGParser(boolean verbose, boolean abstractTermGraphs, ForkJoinPool pool, Executor executor,
+                          PrefilterPipeline prefilters) {
         this.verbose = verbose;
+        this.abstractTermGraphs = abstractTermGraphs;
+        this.pool = pool;
+        this.executor = executor;
+        this.prefilters = prefilters;
     }
 
     public ParseDTO parse(Sequent sequent) {
-        this.frame = ProofFrameBuilder.builder().setSequent(sequent).build();
-        this.chart = new HashMap<>();
+        ProofFrame frame = frame(sequent);
+        Prefilter rejected = prefilters.reject(sequent, frame);
+        if (rejected != null) {
+            return outputBuilder.reject(sequent, frame.getAxiomatic(), rejected);
+        }
+        return toParse(sequent, parseForest(chart(frame)));
+    }
+
+    /**
+     * @return the integral linkages of a sequent packed into a forest of chart items
+     */
+    public ParseForest parseForest(Sequent sequent) {
+        ProofFrame frame = frame(sequent);
+        if (prefilters.reject(sequent, frame) != null) {
+            return new ParseForest(frame);
+        }
+        return parseForest(chart(frame));
+    }
 
-        int size = frame.getAxiomatic().size();
+    /**
+     * @return a session which parses a sequent while its antecedent categories arrive one by one
+     */
+    public Session session() {
+        return new Session();
+    }
 
-        // prepare length one entries
-        for (int i = 0; i < size - 1; i++) {
-            Edge edge = attemptLink(i, i + 1);
-            if (edge != null) {
-                put(new Item(i, i + 1, edge, frame.getLinkage()));
-            }
+    private ParseDTO toParse(Sequent sequent, ParseForest forest) {
+        Set<Matching> matchings = new HashSet<>();
+        for (Iterator<Matching> it = forest.matchings(); it.hasNext(); ) {
+            matchings.add(it.next());
         }
 
-        // going along a diagonal up and to the left
-        for (int r = 1; r < size; r++) {
-            for (int l = r - 1; l >= 0; l--) {
-                Set<Item> items = get(l, r);
+        Set<Linkage> integral = new HashSet<>();
+        for (Matching matching : matchings) {
+            integral.add(matching.toLinkage(forest.getFrame()));
+        }
 
-                // successful bracketing will fill in a cell (l - 1, r + 1), which is above the diagonal
-                Set<Item> addition = new HashSet<>();
-                for (Item item : items) {
-                    if (item.i > 0 && item.j < size - 1) {
-                        Edge edge = attemptLink(item.i - 1, item.j + 1);
-                        if (edge != null) {
-                            addition.add(new Item(item.i - 1, item.j + 1, edge, Arrays.asList(item)));
-                        }
-                    }
-                }
+        return outputBuilder.build(sequent, integral, forest.getFrame().getAxiomatic());
+    }
 
-                for (Item item : addition) {
-                    put(item);
-                }
+    private ParseForest parseForest(Chart chart) {
+        return forest(chart, chart.fill());
+    }
 
-                // only attempting to adjoin with the left cell, successful adjoin fills in a cell in the same
-                // diagonal two cells higher, so if we go upwards the cell will be complete when we get there
+    private ParseForest forest(Chart chart, List<Chart.Item> results) {
+        boolean[] integral = validate(chart, results);
 
-                // things that can be adjoined on the left all lie on a diagonal below the current one
-                Set<Item> ls = new HashSet<>();
-                for (int m = 0; m < l - 1; m++) { // left index
-                    ls.addAll(get(m, l - 1));
-                }
+        ParseForest forest = new ParseForest(chart.getFrame());
+        Map<Chart.Item, Integer> nodes = new IdentityHashMap<>();
+        for (int k = 0; k < results.size(); k++) {
+            if (integral[k]) {
+                forest.addRoot(chart.node(forest, results.get(k), nodes));
+            }
+        }
 
-                addition = new HashSet<>();
-                for (Item item : items) {
-                    for (Item left : ls) {
-                        addition.add(new Item(left.i, item.j, null, Arrays.asList(left, item)));
-                    }
-                }
+        return forest;
+    }
 
-                for (Item item : addition) {
-                    put(item);
-                }
+    /**
+     * Stops at the first integral linkage, no other complete linkages are validated.
+     */
+    @Override
+    public boolean recognize(Sequent sequent) {
+        ProofFrame frame = frame(sequent);
+        if (prefilters.reject(sequent, frame) != null) {
+            return false;
+        }
+        Chart chart = chart(frame);
+        for (Chart.Item item : chart.fill()) {
+            if (isIntegral(chart, item)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        Set<Item> results = get(0, size - 1);
+    /**
+     * Linkages are counted in the forest, so neither DTOs nor linkages are built.
+     */
+    @Override
+    public long countParses(Sequent sequent) {
+        return parseForest(sequent).count();
+    }
 
-        if (verbose) {
-            System.out.println("DEBUG: results size = " + results.size());
+    /**
+     * The chart is filled in eagerly, but complete linkages are validated and expanded one at a time.
+     */
+    @Override
+    public Iterator<LinkageDTO> iterate(Sequent sequent) {
+        ProofFrame frame = frame(sequent);
+        if (prefilters.reject(sequent, frame) != null) {
+            return Collections.emptyIterator();
         }
+        Chart chart = chart(frame);
+        Iterator<Chart.Item> results = chart.fill().iterator();
+        List<Vertex> order = chart.getFrame().getAxiomatic();
+        ParseForest forest = new ParseForest(chart.getFrame());
+        Map<Chart.Item, Integer> nodes = new IdentityHashMap<>();
+
+        return new Iterator<LinkageDTO>() {
+            private Iterator<Matching> current = Collections.emptyIterator();
 
-        // we have spurious ambiguity in the result set, so now we'll need to dedup. I do stupid things here. TODO do not.
-        Set<Item> deduped = new TreeSet<>(new Comparator<Item>() {
-            // for the purpose of deduplication I build a string of indices of successor vertices in the underlying frame according to the linkage, then compare those strings
             @Override
-            public int compare(Item o1, Item o2) {
-                String c1 = "";
-                String c2 = "";
-                for (Vertex vertex : frame.getAxiomatic()) {
-                    c1 += o1.linkage.getSuccessors(vertex).stream().map(Vertex::getId).sorted().map(String::valueOf).reduce("|", (s, s2) -> s + " " + s2);
-                    c2 += o2.linkage.getSuccessors(vertex).stream().map(Vertex::getId).sorted().map(String::valueOf).reduce("|", (s, s2) -> s + " " + s2);
+            public boolean hasNext() {
+                while (!current.hasNext() && results.hasNext()) {
+                    Chart.Item item = results.next();
+                    if (isIntegral(chart, item)) {
+                        int node = chart.node(forest, item, nodes);
+                        forest.addRoot(node);
+                        current = forest.matchings(node);
+                    }
                 }
-                return c1.compareTo(c2);
+                return current.hasNext();
             }
-        });
-        deduped.addAll(results);
-        if (verbose) {
-            System.out.println("DEBUG: deduped size = " + deduped.size());
-        }
 
-        Set<Linkage> integral = new HashSet<>();
-        for (Item item : deduped) {
-            Linkage linkage = item.linkage;
-            Validator validator = new Validator(linkage, verbose, true);
-            if (validator.isLIntegral()) {
-                integral.add(linkage);
-                if (verbose) {
-                    System.out.println("DEBUG: integral");
+            @Override
+            public LinkageDTO next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
+                return outputBuilder.build(current.next().toLinkage(chart.getFrame()), order);
             }
-        }
-
-        return outputBuilder.build(sequent, integral, frame.getAxiomatic());
+        };
     }
 
-    private Set<Item> get(int leftIndex, int rightIndex) {
-        return chart.getOrDefault(new Key(leftIndex, rightIndex), Collections.emptySet());
+    /**
+     * Each validation builds its own reachability index, so the items are validated independently of each other,
+     * on the validation executor if there is one. Every task writes its own element of the result.
+     *
+     * @return whether each of the items is L-integral
+     */
+    private boolean[] validate(Chart chart, List<Chart.Item> items) {
+        boolean[] integral = new boolean[items.size()];
+        if (executor == null) {
+            for (int k = 0; k < items.size(); k++) {
+                integral[k] = isIntegral(chart, items.get(k));
+            }
+        } else {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[items.size()];
+            for (int k = 0; k < items.size(); k++) {
+                int i = k;
+                futures[k] = CompletableFuture.runAsync(() -> integral[i] = isIntegral(chart, items.get(i)), executor);
+            }
+            CompletableFuture.allOf(futures).join();
+        }
+        return integral;
     }
 
-    private void put(Item item) {
-        Validator validator = new Validator(item.linkage, verbose, false);
-        if (validator.isRegularAcyclic()) {
-            chart.putIfAbsent(item.getKey(), new HashSet<>());
-            chart.get(item.getKey()).add(item);
-        }
+    private ProofFrame frame(Sequent sequent) {
+        return ProofFrameBuilder.builder().setSequent(sequent).build();
     }
 
-    private Edge attemptLink(int l, int r) {
-        Vertex left = frame.getAxiom(l);
-        Vertex right = frame.getAxiom(r);
+    private Chart chart(Frame frame) {
+        return new Chart(frame, abstractTermGraphs, pool, verbose);
+    }
 
-        if (left.getCategory().equals(right.getCategory()) && left.getPolarity() != right.getPolarity()) {
-            // a regular edge is from positive to negative
-            if (left.getPolarity() == Polarity.POSITIVE) {
-                return new Edge(left, right, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
-            } else {
-                return new Edge(right, left, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+    /**
+     * The links of the item are validated on top of the frame of the chart, which may extend the frame the item
+     * was built for.
+     */
+    private boolean isIntegral(Chart chart, Chart.Item item) {
+        Validator validator = new Validator(TermGraph.of(chart.getFrame().getLinkage(), item.linkage.getEdges()), verbose, true);
+        if (validator.isLIntegral()) {
+            if (verbose) {
+                System.out.println("DEBUG: integral");
             }
-        } else {
-            return null;
+            return true;
         }
+        return false;
     }
 
-    private static class Key {
-        private int i;
-        private int j;
-
-        Key(int i, int j) {
-            this.i = i;
-            this.j = j;
+    /**
+     * An incremental parse. The antecedent categories are appended from left to right, and each of them only adds
+     * the cells of the chart which end at its atoms. The succedent comes last in the total order, so a result is
+     * computed on a copy of the chart extended with the succedent, and the session can be continued afterwards,
+     * e.g. to parse every prefix of a sentence.
+     * <p>
+     * A session is not thread-safe, but any number of sessions of the same parser can be used concurrently.
+     */
+    public class Session {
+        private final List<Category> antecedent = new ArrayList<>();
+        private ProofFrame frame = ProofFrameBuilder.empty();
+        private Chart chart = new Chart(frame, abstractTermGraphs, pool, verbose);
+
+        private Session() {
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            Key key = (Key) o;
-
-            if (i != key.i) return false;
-            return j == key.j;
+        public Session append(Category... categories) {
+            int from = frame.getAxiomatic().size();
+            for (Category category : categories) {
+                frame = ProofFrameBuilder.extend(frame, category, Polarity.NEGATIVE);
+                antecedent.add(category);
+            }
+            chart = chart.extend(frame);
+            chart.fill(from);
+            return this;
         }
 
-        @Override
-        public int hashCode() {
-            int result = i;
-            result = 31 * result + j;
-            return result;
+        public List<Category> getAntecedent() {
+            return Collections.unmodifiableList(antecedent);
         }
-    }
 
-    private static class Item {
-        int i;
-        int j;
-        Linkage linkage;
-
-        Item(int i, int j, Edge edge, Linkage linkage) {
-            this.i = i;
-            this.j = j;
-            this.linkage = linkage.copy();
-            this.linkage.addEdge(edge.getSource(), edge.getTarget(), Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+        public ParseDTO parse(Category succedent) {
+            Sequent sequent = sequent(succedent);
+            ProofFrame complete = complete(succedent);
+            Prefilter rejected = prefilters.reject(sequent, complete);
+            if (rejected != null) {
+                return outputBuilder.reject(sequent, complete.getAxiomatic(), rejected);
+            }
+            return toParse(sequent, parseForest(complete));
         }
 
-        Item(int i, int j, Edge edge, List<Item> parents) {
-            this.i = i;
-            this.j = j;
-
-            linkage = new Linkage();
-            for (Item parent : parents) {
-                Linkage l = parent.linkage;
-                for (Edge e : l.getEdges()) {
-                    linkage.addEdge(e.getSource(), e.getTarget(), e.getPartition(), e.getType());
-                }
+        public ParseForest parseForest(Category succedent) {
+            ProofFrame complete = complete(succedent);
+            if (prefilters.reject(sequent(succedent), complete) != null) {
+                return new ParseForest(complete);
             }
+            return parseForest(complete);
+        }
 
-            if (edge != null) {
-                this.linkage.addEdge(edge.getSource(), edge.getTarget(), edge.getPartition(), edge.getType());
-            }
+        public long countParses(Category succedent) {
+            return parseForest(succedent).count();
+        }
+
+        private Sequent sequent(Category succedent) {
+            return new Sequent(new ArrayList<>(antecedent), Collections.singletonList(succedent));
         }
 
-        Key getKey() {
-            return new Key(i, j);
+        private ProofFrame complete(Category succedent) {
+            return ProofFrameBuilder.extend(frame, succedent, Polarity.POSITIVE);
         }
 
-        @Override
-        public String toString() {
-            return "[" + i + ", " + j + "]";
+        /**
+         * The cells which end at the atoms of the succedent are filled in on a copy of the chart.
+         */
+        private ParseForest parseForest(ProofFrame complete) {
+            Chart extended = chart.extend(complete);
+            return forest(extended, extended.fill(frame.getAxiomatic().size()));
         }
     }
 
@@ -0,0 +1,81 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.category.Category;
+import ru.eventflow.lcg.category.PrimitiveCategory;
+import ru.eventflow.lcg.frame.Frame;
+import ru.eventflow.lcg.frame.Polarity;
+import ru.eventflow.lcg.frame.Vertex;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks which only count the atoms of a frame, in linear time. Every atom is linked to exactly one atom of the same
+ * category and of the opposite polarity, so each of them is a necessary condition for a linkage to exist.
+ */
+public enum CountPrefilter implements Prefilter {
+
+    /**
+     * the number of atoms is even and not zero
+     */
+    PARITY("atom-parity") {
+        @Override
+        public boolean accept(Sequent sequent, Frame frame) {
+            int size = frame.getAxiomatic().size();
+            return size > 0 && size % 2 == 0;
+        }
+    },
+
+    /**
+     * a primitive succedent, e.g. S, has an atom of the same category with the opposite polarity in the antecedent
+     */
+    SUCCEDENT("succedent-counterpart") {
+        @Override
+        public boolean accept(Sequent sequent, Frame frame) {
+            if (sequent.getSuccedent().size() != 1 || !(sequent.getSuccedent().get(0) instanceof PrimitiveCategory)) {
+                return true;
+            }
+            List<Vertex> order = frame.getAxiomatic();
+            Vertex succedent = order.get(order.size() - 1);
+            for (int i = 0; i < order.size() - 1; i++) {
+                Vertex vertex = order.get(i);
+                if (vertex.getCategory() == succedent.getCategory() && vertex.getPolarity() != succedent.getPolarity()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    },
+
+    /**
+     * every primitive category has as many positive atoms as negative ones (van Benthem's count invariant)
+     */
+    BALANCE("count-balance") {
+        @Override
+        public boolean accept(Sequent sequent, Frame frame) {
+            Map<Category, Integer> counts = new HashMap<>();
+            for (Vertex vertex : frame.getAxiomatic()) {
+                counts.merge(vertex.getCategory(), vertex.getPolarity() == Polarity.POSITIVE ? 1 : -1, Integer::sum);
+            }
+            for (int count : counts.values()) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    private final String name;
+
+    CountPrefilter(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+}
@@ -0,0 +1,205 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.frame.Polarity;
+import ru.eventflow.lcg.frame.TermGraph;
+
+import java.util.Arrays;
+
+/**
+ * A topological order of the regular edges of a frame extended with axiomatic links, maintained under edge insertion
+ * as described in (Pearce &amp; Kelly 2006).
+ * <p>
+ * Axiomatic links are regular edges from a positive atom to a negative one, and every atom is linked at most once,
+ * so the links of a partial linkage are given by an array of partners indexed by atoms.
+ * <p>
+ * Orders are immutable. If an inserted edge agrees with the order, the same order is returned, so chart items share
+ * orders and rejecting a cyclic candidate or accepting a consistent one costs O(1). Otherwise the affected region is
+ * searched and the order is copied with the region reordered.
+ */
+class DynamicTopologicalOrder {
+
+    private final int[] ord;
+
+    private DynamicTopologicalOrder(int[] ord) {
+        this.ord = ord;
+    }
+
+    /**
+     * @return a topological order of the regular edges of a graph, or null if it has a regular cycle
+     */
+    static DynamicTopologicalOrder of(TermGraph graph) {
+        int[] ord = new int[graph.size()];
+        return order(graph, 0, ord) ? new DynamicTopologicalOrder(ord) : null;
+    }
+
+    /**
+     * The vertices of the graph which are not in the order yet must only be connected to each other, as the atoms
+     * of the categories appended to a frame are, so they are ordered after all the others.
+     *
+     * @return the order extended to all the vertices of a graph, or null if the new vertices have a regular cycle
+     */
+    DynamicTopologicalOrder extend(TermGraph graph) {
+        if (graph.size() == ord.length) {
+            return this;
+        }
+        int[] copy = Arrays.copyOf(ord, graph.size());
+        return order(graph, ord.length, copy) ? new DynamicTopologicalOrder(copy) : null;
+    }
+
+    /**
+     * Kahn's algorithm on the vertices from a given one on, which are placed at the same positions.
+     *
+     * @return false if the vertices have a regular cycle
+     */
+    private static boolean order(TermGraph graph, int from, int[] ord) {
+        TermGraph.Adjacency regular = graph.getRegular();
+        int size = graph.size();
+
+        int[] indegree = new int[size];
+        int[] queue = new int[size];
+        int head = from;
+        int tail = from;
+
+        for (int v = from; v < size; v++) {
+            indegree[v] = graph.getRegularInverse().degree(v);
+            if (indegree[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+
+        while (head < tail) {
+            int v = queue[head];
+            ord[v] = head++;
+            for (int k = regular.begin(v); k < regular.end(v); k++) {
+                int successor = regular.neighbour(k);
+                if (--indegree[successor] == 0) {
+                    queue[tail++] = successor;
+                }
+            }
+        }
+
+        return tail == size;
+    }
+
+    /**
+     * @return the number of vertices in the order
+     */
+    int size() {
+        return ord.length;
+    }
+
+    /**
+     * @return true if an edge from u to v agrees with the order
+     */
+    boolean precedes(int u, int v) {
+        return ord[u] < ord[v];
+    }
+
+    /**
+     * @param frame    the frame the order was built for
+     * @param partners the links which are already present, i.e. the partner of each atom or -1
+     * @return an order of the graph extended with the edge from u to v, or null if the edge closes a regular cycle
+     */
+    DynamicTopologicalOrder insert(int u, int v, TermGraph frame, int[] partners) {
+        int lb = ord[v];
+        int ub = ord[u];
+        if (lb > ub) {
+            return this;
+        }
+        if (u == v) {
+            return null;
+        }
+
+        Scratch scratch = Scratch.get();
+        scratch.clearMarks(ord.length);
+        int[] forward = scratch.forward(ord.length);
+        int[] backward = scratch.backward(ord.length);
+
+        // vertices reachable from v which have to be moved after u, reaching u means a cycle
+        int f = search(v, ub, true, frame, partners, scratch, forward, u);
+        if (f < 0) {
+            return null;
+        }
+
+        // vertices reaching u which have to be moved before v
+        int b = search(u, lb, false, frame, partners, scratch, backward, -1);
+
+        sortByOrder(forward, f);
+        sortByOrder(backward, b);
+
+        // the affected vertices keep the same set of positions, the backward region goes first
+        int[] positions = new int[f + b];
+        for (int i = 0; i < b; i++) {
+            positions[i] = ord[backward[i]];
+        }
+        for (int i = 0; i < f; i++) {
+            positions[b + i] = ord[forward[i]];
+        }
+        Arrays.sort(positions);
+
+        int[] copy = Arrays.copyOf(ord, ord.length);
+        for (int i = 0; i < b; i++) {
+            copy[backward[i]] = positions[i];
+        }
+        for (int i = 0; i < f; i++) {
+            copy[forward[i]] = positions[b + i];
+        }
+        return new DynamicTopologicalOrder(copy);
+    }
+
+    /**
+     * Depth-first search bounded by a position in the order, forwards (positions up to the bound)
+     * or backwards (positions from the bound on). Both searches of an insertion share the visited marks.
+     *
+     * @return the number of vertices found, or -1 if the target vertex was reached
+     */
+    private int search(int start, int bound, boolean forward, TermGraph frame, int[] partners,
+                       Scratch scratch, int[] found, int target) {
+        TermGraph.Adjacency adjacency = forward ? frame.getRegular() : frame.getRegularInverse();
+        // links go from positive to negative atoms
+        Polarity linked = forward ? Polarity.POSITIVE : Polarity.NEGATIVE;
+
+        int[] stack = scratch.stack(ord.length);
+        int top = 0;
+        int count = 0;
+
+        stack[top++] = start;
+        scratch.mark(start);
+        while (top > 0) {
+            int x = stack[--top];
+            found[count++] = x;
+
+            for (int k = adjacency.begin(x); k <= adjacency.end(x); k++) {
+                int y;
+                if (k < adjacency.end(x)) {
+                    y = adjacency.neighbour(k);
+                } else if (partners[x] >= 0 && frame.getVertex(x).getPolarity() == linked) {
+                    y = partners[x];
+                } else {
+                    continue;
+                }
+
+                if (y == target) {
+                    return -1;
+                }
+                if (!scratch.isMarked(y) && (forward ? ord[y] < bound : ord[y] > bound)) {
+                    scratch.mark(y);
+                    stack[top++] = y;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void sortByOrder(int[] vertices, int length) {
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = ((long) ord[vertices[i]] << 32) | vertices[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < length; i++) {
+            vertices[i] = (int) keys[i];
+        }
+    }
+
+}
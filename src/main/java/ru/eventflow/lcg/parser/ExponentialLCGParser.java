@@ -1,163 +1,300 @@
 package ru.eventflow.lcg.parser;
 
-import ru.eventflow.lcg.category.PrimitiveCategory;
+import ru.eventflow.lcg.dto.LinkageDTO;
 import ru.eventflow.lcg.dto.ParseDTO;
 import ru.eventflow.lcg.frame.*;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A brute force (exponential time) parser for LCG.
  * <p>
- * Produces a set of complete proof frames.
+ * Complete planar linkages are enumerated lazily by a depth-first search, which links the leftmost unlinked atom
+ * to each of the atoms it can be linked to without crossing the links made so far, and each of them is validated.
  * This implementation was used to validate the results of the chart-based parser.
+ * <p>
+ * Candidates are kept as {@link Matching}s and only combined with the frame for validation and output.
+ * Optionally, the linkages are validated on an executor while the search goes on, with at most
+ * {@value #MAX_IN_FLIGHT} validations in flight, so the search never runs far ahead of the validation.
  */
 public class ExponentialLCGParser implements LCGParser {
 
-    private OutputBuilder outputBuilder = new OutputBuilder();
+    static final int MAX_IN_FLIGHT = 256;
+
+    private final OutputBuilder outputBuilder = new OutputBuilder();
+    private final boolean verbose;
+    private final Executor executor;
+    private final PrefilterPipeline prefilters;
+
+    public ExponentialLCGParser() {
+        this(false);
+    }
+
+    public ExponentialLCGParser(boolean verbose) {
+        this(verbose, null, PrefilterPipeline.standard());
+    }
+
+    /**
+     * @param executor an executor to validate complete linkages in parallel, or null to validate them sequentially
+     */
+    public ExponentialLCGParser(Executor executor) {
+        this(executor, PrefilterPipeline.standard());
+    }
+
+    /**
+     * @param prefilters the checks a sequent must pass before its linkages are enumerated
+     */
+    public ExponentialLCGParser(Executor executor, PrefilterPipeline prefilters) {
+        this(false, executor, prefilters);
+    }
+
+    public ExponentialLCGParser(boolean verbose, Executor executor, PrefilterPipeline prefilters) {
+        this.verbose = verbose;
+        this.executor = executor;
+        this.prefilters = prefilters;
+    }
 
     @Override
     public ParseDTO parse(Sequent sequent) {
-        Set<Linkage> complete = new HashSet<>();
         Frame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        Prefilter rejected = prefilters.reject(sequent, frame);
+        if (rejected != null) {
+            return outputBuilder.reject(sequent, frame.getAxiomatic(), rejected);
+        }
+
+        Set<Linkage> integral = new HashSet<>();
+        for (Matching matching : validate(frame, new PlanarLinkages(frame))) {
+            integral.add(matching.toLinkage(frame));
+        }
 
-        int size = frame.getAxiomatic().size();
+        return outputBuilder.build(sequent, integral, frame.getAxiomatic());
+    }
 
-        // heuristic 1: if the number of primitive categories in the frame is odd or zero, there is no linkage
-        if (size == 0 || size % 2 == 1) {
-            return outputBuilder.build(sequent, Collections.emptySet(), frame.getAxiomatic());
+    /**
+     * Stops at the first integral linkage, the remaining linkages are neither enumerated nor validated.
+     */
+    @Override
+    public boolean recognize(Sequent sequent) {
+        Frame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        for (Iterator<Matching> it = complete(sequent, frame); it.hasNext(); ) {
+            if (isIntegral(frame, it.next())) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    @Override
+    public long countParses(Sequent sequent) {
+        Frame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        return validate(frame, complete(sequent, frame)).size();
+    }
 
-        // heuristic 2: if there's a single primitive category in the succedent (e.g. S), and the antecedent does not
-        // contain the same with an opposite polarity, there is no linkage
-        if (sequent.getSuccedent().size() == 1 && sequent.getSuccedent().get(0) instanceof PrimitiveCategory) {
-            List<Vertex> order = frame.getAxiomatic();
+    @Override
+    public Iterator<LinkageDTO> iterate(Sequent sequent) {
+        Frame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        Iterator<Matching> complete = complete(sequent, frame);
 
-            Vertex succedent = order.get(size - 1);
+        return new Iterator<LinkageDTO>() {
+            private Matching next;
 
-            boolean match = false;
-            for (int i = 0; i < size - 1; i++) {
-                Vertex vertex = order.get(i);
-                if (vertex.getCategory().getSymbol().equals(succedent.getCategory().getSymbol()) && vertex.getPolarity() != succedent.getPolarity()) {
-                    match = true;
-                    break;
+            @Override
+            public boolean hasNext() {
+                while (next == null && complete.hasNext()) {
+                    Matching matching = complete.next();
+                    if (isIntegral(frame, matching)) {
+                        next = matching;
+                    }
                 }
+                return next != null;
             }
-            if (!match) {
-                System.out.println("DEBUG: H2");
-                return outputBuilder.build(sequent, Collections.emptySet(), frame.getAxiomatic());
+
+            @Override
+            public LinkageDTO next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Matching matching = next;
+                next = null;
+                return outputBuilder.build(matching.toLinkage(frame), frame.getAxiomatic());
             }
+        };
+    }
+
+    /**
+     * @return all complete planar linkages of the frame, none if the sequent is rejected by a prefilter
+     */
+    private Iterator<Matching> complete(Sequent sequent, Frame frame) {
+        if (prefilters.reject(sequent, frame) != null) {
+            return Collections.emptyIterator();
         }
+        return new PlanarLinkages(frame);
+    }
 
-        Set<Linkage> incomplete = new HashSet<>();
-        incomplete.add(new Linkage());
-
-        for (int l = 0; l < size; l++) {
-            Set<Linkage> attempts = new HashSet<>(incomplete);
-
-            for (Linkage linkage : incomplete) {
-                for (int r = l + 1; r < size; r++) {
-                    Linkage attempt = attemptLink(frame, linkage, l, r);
-                    if (attempt != null) {
-                        if (complete(frame, attempt)) {
-                            complete.add(attempt);
-                        } else {
-                            attempts.add(attempt);
-                        }
-                    }
+    /**
+     * Each validation builds its own reachability index, so with an executor the linkages are validated
+     * independently of each other and the integral ones are collected into a concurrent set. The search waits
+     * for a free slot before it submits the next linkage, and the first failure stops it.
+     */
+    private Set<Matching> validate(Frame frame, Iterator<Matching> complete) {
+        if (executor == null) {
+            Set<Matching> integral = new HashSet<>();
+            while (complete.hasNext()) {
+                Matching matching = complete.next();
+                if (isIntegral(frame, matching)) {
+                    integral.add(matching);
                 }
             }
+            return integral;
+        }
 
-            incomplete = attempts;
-
-            // heuristic 3: if the number of atoms without a link to the right of l is less than
-            // the number of non-connected atoms to the left of l, there is no way this linkage can be
-            // completed, so we can throw it away immediately
-            int i = l + 1;
-            incomplete.removeIf(linkage -> dead(frame, linkage, i, size));
+        Set<Matching> integral = ConcurrentHashMap.newKeySet();
+        Semaphore slots = new Semaphore(MAX_IN_FLIGHT);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        while (failure.get() == null && complete.hasNext()) {
+            Matching matching = complete.next();
+            slots.acquireUninterruptibly();
+            CompletableFuture.runAsync(() -> {
+                if (isIntegral(frame, matching)) {
+                    integral.add(matching);
+                }
+            }, executor).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    failure.compareAndSet(null, e);
+                }
+                slots.release();
+            });
+        }
+        slots.acquireUninterruptibly(MAX_IN_FLIGHT);
 
-//            System.out.println("DEBUG: incomplete size = " + incomplete.size());
+        Throwable e = failure.get();
+        if (e != null) {
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
         }
+        return integral;
+    }
 
-        // add edges from the frame and validate
-        for (Linkage linkage : complete) {
-            for (Edge edge : frame.getLinkage().getEdges()) {
-                linkage.addEdge(edge.getSource(), edge.getTarget(), edge.getPartition(), edge.getType());
+    /**
+     * The links are only combined with the frame for validation.
+     */
+    private boolean isIntegral(Frame frame, Matching matching) {
+        Validator validator = new Validator(matching.toGraph(frame), verbose, true);
+        if (validator.isLIntegral()) {
+            if (verbose) {
+                System.out.println("DEBUG: integral");
             }
+            return true;
         }
+        return false;
+    }
 
-        System.out.println("DEBUG: complete size = " + complete.size());
+    /**
+     * Depth-first search with an explicit stack. The atom linked at each level is the leftmost unlinked one,
+     * so it can only be linked to an atom before the next linked atom, and every linkage is found exactly once.
+     */
+    private static class PlanarLinkages implements Iterator<Matching> {
+        private final Frame frame;
+        private final int size;
+        private final int[] partners;
 
-        Set<Linkage> integral = new HashSet<>();
+        // the atom linked at each level and its current partner, or -1 if no partner was tried yet
+        private final int[] atoms;
+        private final int[] choices;
+        private int depth;
 
-        for (Linkage linkage : complete) {
-            Validator validator = new Validator(linkage, true, true);
-            if (validator.isLIntegral()) {
-                System.out.println("DEBUG: integral");
-                integral.add(linkage);
+        private Matching next;
+
+        PlanarLinkages(Frame frame) {
+            this.frame = frame;
+            this.size = frame.getAxiomatic().size();
+            this.partners = new int[size];
+            Arrays.fill(partners, -1);
+            this.atoms = new int[size / 2];
+            this.choices = new int[size / 2];
+            // an odd number of atoms cannot be completely linked
+            if (size > 0 && size % 2 == 0) {
+                this.choices[0] = -1;
+                this.depth = 1;
             }
         }
 
-        return outputBuilder.build(sequent, integral, frame.getAxiomatic());
-    }
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = search();
+            }
+            return next != null;
+        }
 
-    private boolean dead(Frame frame, Linkage linkage, int l, int size) {
-        int left = 0;
-        int right = 0;
-        for (int i = 0; i < size; i++) {
-            Vertex v = frame.getAxiom(i);
-            if (linkage.getInEdges(v).size() + linkage.getOutEdges(v).size() == 0) {
-                if (i < l) {
-                    left++;
-                } else {
-                    right++;
-                }
+        @Override
+        public Matching next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
+            Matching matching = next;
+            next = null;
+            return matching;
         }
-        return left > right;
-    }
 
-    private boolean complete(Frame frame, Linkage linkage) {
-        return linkage.getEdges().size() * 2 == frame.getAxiomatic().size();
-    }
+        /**
+         * Resumes the search from the last choice made.
+         */
+        private Matching search() {
+            while (depth > 0) {
+                int k = depth - 1;
+                int l = atoms[k];
+                if (choices[k] >= 0) {
+                    partners[choices[k]] = -1;
+                    partners[l] = -1;
+                }
 
-    private Linkage attemptLink(Frame frame, Linkage linkage, int l, int r) {
-        Linkage copy = linkage.copy();
-        Vertex left = frame.getAxiom(l);
-        Vertex right = frame.getAxiom(r);
+                int r = nextPartner(l, choices[k] < 0 ? l + 1 : choices[k] + 2);
+                if (r < 0) {
+                    depth--;
+                    continue;
+                }
+                choices[k] = r;
+                partners[l] = r;
+                partners[r] = l;
 
-        // already attempted
-        if (linkage.getInEdges(left).size() + linkage.getOutEdges(left).size() > 0 || linkage.getInEdges(right).size() + linkage.getOutEdges(right).size() > 0) {
+                int unlinked = l + 1;
+                while (unlinked < size && partners[unlinked] >= 0) {
+                    unlinked++;
+                }
+                if (unlinked == size) {
+                    return Matching.of(partners);
+                }
+                atoms[depth] = unlinked;
+                choices[depth] = -1;
+                depth++;
+            }
             return null;
         }
 
-        if (left.getCategory().equals(right.getCategory()) && left.getPolarity() != right.getPolarity()) {
-            // check planarity
-            for (int i = l + 1; i < r; i++) {
-                Vertex internal = frame.getAxiom(i);
-                Set<Vertex> incident = new HashSet<>();
-                incident.addAll(linkage.getPredecessors(internal));
-                incident.addAll(linkage.getSuccessors(internal));
-                for (Vertex v : incident) {
-                    int index = frame.getIndex(v);
-                    if (index < l || index > r) {
-                        return null;
-                    }
+        /**
+         * An even number of atoms is enclosed by a link, so candidates are at an odd distance from l.
+         *
+         * @return the first atom not before {@code from} which can be linked to l, or -1 if there is none
+         */
+        private int nextPartner(int l, int from) {
+            Vertex left = frame.getAxiom(l);
+            for (int r = from; r < size; r += 2) {
+                if (partners[r] >= 0 || partners[r - 1] >= 0) {
+                    // the next linked atom bounds the links of l
+                    return -1;
+                }
+                Vertex right = frame.getAxiom(r);
+                if (left.getCategory() == right.getCategory() && left.getPolarity() != right.getPolarity()) {
+                    return r;
                 }
             }
-
-            // a regular edge is from positive to negative
-            if (left.getPolarity() == Polarity.POSITIVE) {
-                copy.addEdge(left, right, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
-            } else {
-                copy.addEdge(right, left, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
-            }
-            return copy;
-        } else {
-            return null;
+            return -1;
         }
     }
 
@@ -1,7 +1,40 @@
 package ru.eventflow.lcg.parser;
 
+import ru.eventflow.lcg.dto.LinkageDTO;
 import ru.eventflow.lcg.dto.ParseDTO;
 
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public interface LCGParser {
     ParseDTO parse(Sequent sequent);
+
+    /**
+     * @return true if the sequent is derivable in L, i.e. it has at least one integral linkage
+     */
+    default boolean recognize(Sequent sequent) {
+        return !parse(sequent).getParses().isEmpty();
+    }
+
+    /**
+     * @return the number of integral linkages of the sequent
+     */
+    default long countParses(Sequent sequent) {
+        return parse(sequent).getParses().size();
+    }
+
+    /**
+     * @return the integral linkages of the sequent, implementations yield each one as soon as it is validated
+     */
+    default Iterator<LinkageDTO> iterate(Sequent sequent) {
+        return parse(sequent).getParses().iterator();
+    }
+
+    default Stream<LinkageDTO> stream(Sequent sequent) {
+        Spliterator<LinkageDTO> spliterator = Spliterators.spliteratorUnknownSize(iterate(sequent), Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
 }
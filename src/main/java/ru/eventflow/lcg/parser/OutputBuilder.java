@@ -11,7 +11,17 @@ import java.util.*;
 public class OutputBuilder {
 
     public ParseDTO build(Sequent sequent, Set<Linkage> linkages, List<Vertex> order) {
+        return build(sequent, linkages, order, null);
+    }
+
+    /**
+     * @return a parse without linkages of a sequent which was rejected by a prefilter
+     */
+    public ParseDTO reject(Sequent sequent, List<Vertex> order, Prefilter prefilter) {
+        return build(sequent, Collections.emptySet(), order, prefilter.getName());
+    }
 
+    private ParseDTO build(Sequent sequent, Set<Linkage> linkages, List<Vertex> order, String rejectedBy) {
         Map<Integer, Integer> indices = new HashMap<>();
 
         List<CategoryDTO> axioms = new ArrayList<>();
@@ -23,28 +33,49 @@ public class OutputBuilder {
             i++;
         }
 
-        String antecedent = sequent.getAntecedent().stream().map(Category::getSymbol).reduce((s, s2) -> s + "," + s2).orElse("");
-        String succedent = sequent.getSuccedent().stream().map(Category::getSymbol).reduce((s, s2) -> s + "," + s2).orElse("");
-        SequentDTO sequentDTO = new SequentDTO(antecedent, succedent);
+        SequentDTO sequentDTO = build(sequent);
 
         List<LinkageDTO> ls = new ArrayList<>();
         for (Linkage linkage : linkages) {
+            ls.add(build(linkage, indices));
+        }
+
+        return new ParseDTO(sequentDTO, axioms, ls, rejectedBy);
+    }
 
-            List<Edge> orderedEdges = new ArrayList<>(linkage.getEdges());
-            orderedEdges.sort(Comparator.comparingInt(value -> value.getSource().getId()));
-            orderedEdges.sort(Comparator.comparingInt(value -> value.getTarget().getId()));
+    public SequentDTO build(Sequent sequent) {
+        String antecedent = sequent.getAntecedent().stream().map(Category::getSymbol).reduce((s, s2) -> s + "," + s2).orElse("");
+        String succedent = sequent.getSuccedent().stream().map(Category::getSymbol).reduce((s, s2) -> s + "," + s2).orElse("");
+        return new SequentDTO(antecedent, succedent);
+    }
+
+    /**
+     * Builds a single linkage, e.g. when linkages are streamed rather than collected.
+     */
+    public LinkageDTO build(Linkage linkage, List<Vertex> order) {
+        Map<Integer, Integer> indices = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            indices.put(order.get(i).getId(), i);
+        }
+        return build(linkage, indices);
+    }
 
-            List<LinkDTO> links = new ArrayList<>();
-            for (Edge e : orderedEdges) {
-                Vertex source = e.getSource();
-                Vertex target = e.getTarget();
-                links.add(new LinkDTO(indices.get(source.getId()), indices.get(target.getId()), e.getPartition().name().toLowerCase(), e.getType().name().toLowerCase()));
-            }
+    private LinkageDTO build(Linkage linkage, Map<Integer, Integer> indices) {
+        List<Edge> orderedEdges = new ArrayList<>(linkage.getEdges());
+        // a frame edge and a link may connect the same atoms, so the order does not depend on the linkage
+        orderedEdges.sort(Comparator.<Edge>comparingInt(value -> value.getTarget().getId())
+                .thenComparingInt(value -> value.getSource().getId())
+                .thenComparing(Edge::getPartition)
+                .thenComparing(Edge::getType));
 
-            ls.add(new LinkageDTO(links));
+        List<LinkDTO> links = new ArrayList<>();
+        for (Edge e : orderedEdges) {
+            Vertex source = e.getSource();
+            Vertex target = e.getTarget();
+            links.add(new LinkDTO(indices.get(source.getId()), indices.get(target.getId()), e.getPartition().name().toLowerCase(), e.getType().name().toLowerCase()));
         }
 
-        return new ParseDTO(sequentDTO, axioms, ls);
+        return new LinkageDTO(links);
     }
 
 }
@@ -0,0 +1,222 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.frame.Edge;
+import ru.eventflow.lcg.frame.Frame;
+import ru.eventflow.lcg.frame.Linkage;
+import ru.eventflow.lcg.frame.Matching;
+import ru.eventflow.lcg.frame.PersistentLinkage;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A packed representation of the integral linkages of a frame. Nodes are chart items (or classes of items with equal
+ * abstract term graphs), and each node has a list of derivations, i.e. hyperedges to the nodes it was built from:
+ * a link between adjacent atoms, a link around another node, or a concatenation of two nodes.
+ * <p>
+ * Every complete derivation of a root node is an integral linkage, so counts and link marginals are computed
+ * by dynamic programming over the nodes, and linkages are only enumerated on demand, either as {@link Linkage}s or
+ * in the compact form of {@link Matching}s, which do not repeat the frame.
+ * <p>
+ * Nodes are added after the nodes they are built from, so node ids are a topological order of the forest.
+ * Counts are exact, an {@link ArithmeticException} is thrown if they do not fit into a long.
+ */
+public class ParseForest implements Iterable<Linkage> {
+
+    private final Frame frame;
+    private final PersistentLinkage base;
+    private final List<List<Derivation>> nodes = new ArrayList<>();
+    private final List<Integer> roots = new ArrayList<>();
+
+    ParseForest(Frame frame) {
+        this.frame = frame;
+        this.base = PersistentLinkage.of(frame.getLinkage());
+    }
+
+    int addNode() {
+        nodes.add(new ArrayList<>());
+        return nodes.size() - 1;
+    }
+
+    void addLeaf(int node, Edge link) {
+        nodes.get(node).add(new Derivation(link, -1, -1));
+    }
+
+    void addBracket(int node, Edge link, int inner) {
+        nodes.get(node).add(new Derivation(link, inner, -1));
+    }
+
+    void addAdjoin(int node, int left, int right) {
+        nodes.get(node).add(new Derivation(null, left, right));
+    }
+
+    void addRoot(int node) {
+        roots.add(node);
+    }
+
+    public Frame getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return the number of integral linkages
+     */
+    public long count() {
+        long[] inside = inside();
+        long count = 0;
+        for (int root : roots) {
+            count = Math.addExact(count, inside[root]);
+        }
+        return count;
+    }
+
+    /**
+     * @return the axiomatic links which occur in at least one integral linkage
+     */
+    public Set<Edge> getLinks() {
+        return getLinkCounts().keySet();
+    }
+
+    /**
+     * Marginals are computed by the inside-outside algorithm: the number of linkages which contain a link of
+     * a derivation is the number of ways to complete its node times the number of ways to derive the rest of it.
+     *
+     * @return the number of integral linkages which contain each axiomatic link
+     */
+    public Map<Edge, Long> getLinkCounts() {
+        long[] inside = inside();
+        long[] outside = new long[nodes.size()];
+        for (int root : roots) {
+            outside[root] = Math.addExact(outside[root], 1);
+        }
+
+        Map<Edge, Long> counts = new HashMap<>();
+        for (int node = nodes.size() - 1; node >= 0; node--) {
+            if (outside[node] == 0) {
+                continue;
+            }
+            for (Derivation d : nodes.get(node)) {
+                if (d.link != null) {
+                    long count = Math.multiplyExact(outside[node], d.first >= 0 ? inside[d.first] : 1);
+                    counts.merge(d.link, count, Math::addExact);
+                }
+                if (d.second >= 0) {
+                    outside[d.first] = Math.addExact(outside[d.first], Math.multiplyExact(outside[node], inside[d.second]));
+                    outside[d.second] = Math.addExact(outside[d.second], Math.multiplyExact(outside[node], inside[d.first]));
+                } else if (d.first >= 0) {
+                    outside[d.first] = Math.addExact(outside[d.first], outside[node]);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Linkages are enumerated lazily, one derivation at a time.
+     */
+    @Override
+    public Iterator<Linkage> iterator() {
+        return map(flatMap(roots.iterator(), this::enumerate), PersistentLinkage::toLinkage);
+    }
+
+    /**
+     * @return the axiomatic links of the integral linkages, enumerated lazily
+     */
+    public Iterator<Matching> matchings() {
+        return map(flatMap(roots.iterator(), this::enumerate), this::toMatching);
+    }
+
+    /**
+     * @return the axiomatic links of the linkages of a single node, enumerated lazily
+     */
+    Iterator<Matching> matchings(int node) {
+        return map(enumerate(node), this::toMatching);
+    }
+
+    private Matching toMatching(PersistentLinkage linkage) {
+        return Matching.of(frame, linkage.getEdges());
+    }
+
+    private long[] inside() {
+        long[] inside = new long[nodes.size()];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (Derivation d : nodes.get(node)) {
+                long count = 1;
+                if (d.first >= 0) {
+                    count = inside[d.first];
+                }
+                if (d.second >= 0) {
+                    count = Math.multiplyExact(count, inside[d.second]);
+                }
+                inside[node] = Math.addExact(inside[node], count);
+            }
+        }
+        return inside;
+    }
+
+    private Iterator<PersistentLinkage> enumerate(int node) {
+        return flatMap(nodes.get(node).iterator(), this::enumerate);
+    }
+
+    private Iterator<PersistentLinkage> enumerate(Derivation d) {
+        if (d.second >= 0) {
+            return flatMap(enumerate(d.first), left -> map(enumerate(d.second), left::join));
+        } else if (d.first >= 0) {
+            return map(enumerate(d.first), inner -> inner.add(d.link));
+        } else {
+            return Collections.singletonList(base.add(d.link)).iterator();
+        }
+    }
+
+    private static <T, R> Iterator<R> map(Iterator<T> iterator, Function<T, R> function) {
+        return new Iterator<R>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public R next() {
+                return function.apply(iterator.next());
+            }
+        };
+    }
+
+    private static <T, R> Iterator<R> flatMap(Iterator<T> iterator, Function<T, Iterator<R>> function) {
+        return new Iterator<R>() {
+            private Iterator<R> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && iterator.hasNext()) {
+                    current = function.apply(iterator.next());
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * A link between adjacent atoms (no nodes), a link around a node (first), or a concatenation (first and second).
+     */
+    private static class Derivation {
+        private final Edge link;
+        private final int first;
+        private final int second;
+
+        Derivation(Edge link, int first, int second) {
+            this.link = link;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.frame.Frame;
+
+/**
+ * A necessary condition for a sequent to have a parse, which is checked on its frame before any chart work is done.
+ */
+public interface Prefilter {
+
+    /**
+     * @return the name reported when the check fails
+     */
+    String getName();
+
+    /**
+     * @return false if the sequent certainly has no parse
+     */
+    boolean accept(Sequent sequent, Frame frame);
+
+}
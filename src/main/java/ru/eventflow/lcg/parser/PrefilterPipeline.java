@@ -0,0 +1,51 @@
+package ru.eventflow.lcg.parser;
+
+import ru.eventflow.lcg.frame.Frame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sequence of {@link Prefilter}s which are checked in order, the cheapest first. A sequent which is rejected
+ * by any of them is reported as having no parses, together with the name of the filter that rejected it.
+ */
+public class PrefilterPipeline {
+
+    /**
+     * accepts every sequent
+     */
+    public static final PrefilterPipeline NONE = new PrefilterPipeline();
+
+    private static final PrefilterPipeline STANDARD = new PrefilterPipeline(CountPrefilter.values());
+
+    private final List<Prefilter> filters;
+
+    public PrefilterPipeline(Prefilter... filters) {
+        this.filters = Collections.unmodifiableList(Arrays.asList(filters.clone()));
+    }
+
+    /**
+     * @return the atom parity, succedent counterpart and count balance checks
+     */
+    public static PrefilterPipeline standard() {
+        return STANDARD;
+    }
+
+    public List<Prefilter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * @return the first filter which rejects the sequent, or null if all of them accept it
+     */
+    public Prefilter reject(Sequent sequent, Frame frame) {
+        for (Prefilter filter : filters) {
+            if (!filter.accept(sequent, frame)) {
+                return filter;
+            }
+        }
+        return null;
+    }
+
+}
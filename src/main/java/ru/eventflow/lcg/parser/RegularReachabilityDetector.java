@@ -1,25 +1,32 @@
 package ru.eventflow.lcg.parser;
 
-import ru.eventflow.lcg.frame.Edge;
 import ru.eventflow.lcg.frame.Linkage;
+import ru.eventflow.lcg.frame.TermGraph;
 import ru.eventflow.lcg.frame.Vertex;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 /**
  * Only works for DAGs.
+ * <p>
+ * The transitive closure of regular edges is built in reverse topological order, so the set of vertices reachable
+ * from a vertex is the union of the sets of its successors, which are complete by the time they are needed.
+ * The sets are bitsets keyed by the vertex index and stored row by row in a single {@code long[]}.
  */
 public class RegularReachabilityDetector {
 
-    private Linkage linkage;
-    private Map<Vertex, Set<Vertex>> index;
-    private Set<Vertex> marked;
+    private TermGraph graph;
+    private int words;
+    private long[] index;
 
     public RegularReachabilityDetector(Linkage linkage, boolean verbose) {
-        this.linkage = linkage;
-        this.index = new HashMap<>();
-        this.marked = new HashSet<>();
+        this(TermGraph.of(linkage), verbose);
+    }
+
+    public RegularReachabilityDetector(TermGraph graph, boolean verbose) {
+        this.graph = graph;
+        this.words = (graph.size() + 63) >>> 6;
+        this.index = new long[graph.size() * words];
 
         buildIndex();
 
@@ -29,51 +36,97 @@ public class RegularReachabilityDetector {
     }
 
     private void buildIndex() {
-        for (Vertex v : linkage.getVertices()) {
-            processVertex(v, new HashSet<>());
+        TermGraph.Adjacency regular = graph.getRegular();
+        int[] order = topologicalOrder();
+
+        for (int i = order.length - 1; i >= 0; i--) {
+            int v = order[i];
+            int row = v * words;
+            index[row + (v >>> 6)] |= 1L << v;
+            for (int k = regular.begin(v); k < regular.end(v); k++) {
+                int successor = regular.neighbour(k) * words;
+                for (int w = 0; w < words; w++) {
+                    index[row + w] |= index[successor + w];
+                }
+            }
         }
     }
 
-    public boolean reachable(Vertex v1, Vertex v2) {
-        return linkage.containsVertex(v1) && linkage.containsVertex(v2) && index.get(v1).contains(v2);
-    }
+    /**
+     * Kahn's algorithm. Vertices on regular cycles are left out.
+     */
+    private int[] topologicalOrder() {
+        TermGraph.Adjacency regular = graph.getRegular();
+        int size = graph.size();
+
+        int[] indegree = new int[size];
+        int[] order = new int[graph.order()];
+        int head = 0;
+        int tail = 0;
+
+        for (int v = 0; v < size; v++) {
+            indegree[v] = graph.getRegularInverse().degree(v);
+            if (graph.contains(v) && indegree[v] == 0) {
+                order[tail++] = v;
+            }
+        }
 
-    private void processVertex(Vertex v, Set<Vertex> visited) {
-        Set<Vertex> copy = new HashSet<>(visited);
-        copy.add(v);
+        while (head < tail) {
+            int v = order[head++];
+            for (int k = regular.begin(v); k < regular.end(v); k++) {
+                int successor = regular.neighbour(k);
+                if (--indegree[successor] == 0) {
+                    order[tail++] = successor;
+                }
+            }
+        }
 
-        // more vertices to check?
-        if (!marked.contains(v)) {
-            marked.add(v);
-            index.putIfAbsent(v, new HashSet<>());
-            index.get(v).add(v);
+        return tail == order.length ? order : Arrays.copyOf(order, tail);
+    }
 
-            for (Edge outEdge : linkage.getOutEdges(v).stream().filter(Edge::isRegular).collect(Collectors.toSet())) {
-                Vertex successor = outEdge.getTarget();
+    public boolean reachable(Vertex v1, Vertex v2) {
+        int i1 = graph.indexOf(v1);
+        int i2 = graph.indexOf(v2);
+        return i1 >= 0 && i2 >= 0 && reachable(i1, i2);
+    }
 
-                processVertex(successor, copy);
-                index.get(v).add(successor);
-                if (index.containsKey(successor)) {
-                    index.get(v).addAll(index.get(successor));
-                }
+    public boolean reachable(int v1, int v2) {
+        return (index[v1 * words + (v2 >>> 6)] & (1L << v2)) != 0;
+    }
+
+    /**
+     * @return the least vertex index not less than {@code from} which is reachable from {@code v}, or -1 if none
+     */
+    public int nextReachable(int v, int from) {
+        if (from >= graph.size()) {
+            return -1;
+        }
+        int row = v * words;
+        int w = from >>> 6;
+        long word = index[row + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words) {
+                return -1;
             }
+            word = index[row + w];
         }
     }
 
     public void dumpIndex() {
         StringBuilder sb = new StringBuilder();
 
-        List<Vertex> keys = new ArrayList<>(index.keySet());
-        keys.sort(Comparator.comparingInt(Vertex::getId));
-
-        for (Vertex key : keys) {
-            sb.append(key);
+        for (int v = 0; v < graph.size(); v++) {
+            if (!graph.contains(v)) {
+                continue;
+            }
+            sb.append(graph.getVertex(v));
             sb.append(": ");
 
-            List<Vertex> vs = new ArrayList<>(index.get(key));
-            vs.sort(Comparator.comparingInt(Vertex::getId));
-            for (Vertex v : vs) {
-                sb.append(v);
+            for (int w = nextReachable(v, 0); w >= 0; w = nextReachable(v, w + 1)) {
+                sb.append(graph.getVertex(w));
                 sb.append(", ");
             }
             sb.append("\n");
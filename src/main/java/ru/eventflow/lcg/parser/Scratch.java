@@ -0,0 +1,93 @@
+package ru.eventflow.lcg.parser;
+
+import java.util.Arrays;
+
+/**
+ * Work buffers of the size of a frame which are needed for every candidate item of a chart, i.e. partner arrays and
+ * the buffers of the searches of {@link DynamicTopologicalOrder}.
+ * <p>
+ * There is one instance per thread, which is reused by all the parses on that thread, so a parse context is reset
+ * rather than reallocated for the next sentence. Visited marks are reset in O(1) by advancing an epoch.
+ * <p>
+ * A buffer grows to the largest frame seen, but a buffer of more than {@value #RETAINED} elements is replaced
+ * with one of the requested size as soon as a smaller frame is parsed, so an exceptionally long sentence does not
+ * pin its buffers to a pool thread for good.
+ */
+final class Scratch {
+
+    static final int RETAINED = 1 << 14;
+
+    private static final ThreadLocal<Scratch> LOCAL = ThreadLocal.withInitial(Scratch::new);
+
+    private int[] partners = new int[0];
+    private int[] forward = new int[0];
+    private int[] backward = new int[0];
+    private int[] stack = new int[0];
+    private int[] marks = new int[0];
+    private int epoch;
+
+    private Scratch() {
+    }
+
+    static Scratch get() {
+        return LOCAL.get();
+    }
+
+    /**
+     * @return a buffer with -1 for each of the given number of atoms, valid until the next call
+     */
+    int[] partners(int size) {
+        partners = fit(partners, size);
+        Arrays.fill(partners, 0, size, -1);
+        return partners;
+    }
+
+    int[] forward(int size) {
+        forward = fit(forward, size);
+        return forward;
+    }
+
+    int[] backward(int size) {
+        backward = fit(backward, size);
+        return backward;
+    }
+
+    int[] stack(int size) {
+        stack = fit(stack, size);
+        return stack;
+    }
+
+    /**
+     * Starts a new search, in which no vertex is visited yet.
+     */
+    void clearMarks(int size) {
+        int[] fitted = fit(marks, size);
+        if (fitted != marks) {
+            marks = fitted;
+            epoch = 0;
+        }
+        if (++epoch == 0) {
+            Arrays.fill(marks, 0);
+            epoch = 1;
+        }
+    }
+
+    boolean isMarked(int v) {
+        return marks[v] == epoch;
+    }
+
+    void mark(int v) {
+        marks[v] = epoch;
+    }
+
+    /**
+     * @return the buffer if it is large enough and not too large to keep, otherwise a new one of the given size
+     */
+    private static int[] fit(int[] buffer, int size) {
+        if (buffer.length < size || buffer.length > Math.max(size, RETAINED)) {
+            return new int[size];
+        }
+        return buffer;
+    }
+
+}
@@ -14,7 +14,7 @@ public class SequentBuilder {
     private SequentBuilder() {
     }
 
-    public static synchronized SequentBuilder builder() {
+    public static SequentBuilder builder() {
         return new SequentBuilder();
     }
 
@@ -1,12 +1,8 @@
 package ru.eventflow.lcg.parser;
 
-import ru.eventflow.lcg.frame.Edge;
 import ru.eventflow.lcg.frame.Linkage;
 import ru.eventflow.lcg.frame.Polarity;
-import ru.eventflow.lcg.frame.Vertex;
-
-import java.util.*;
-import java.util.stream.Collectors;
+import ru.eventflow.lcg.frame.TermGraph;
 
 /**
  * L* is Lambek calculus with empty premises
@@ -18,17 +14,21 @@ import java.util.stream.Collectors;
  */
 public class Validator {
 
-    private Linkage linkage;
+    private TermGraph graph;
     private RegularReachabilityDetector reachability;
     private boolean acyclic;
     private boolean verbose;
 
     public Validator(Linkage linkage, boolean verbose, boolean buildIndex) {
+        this(TermGraph.of(linkage), verbose, buildIndex);
+    }
+
+    public Validator(TermGraph graph, boolean verbose, boolean buildIndex) {
         this.verbose = verbose;
-        this.linkage = linkage;
+        this.graph = graph;
         this.acyclic = isRegularAcyclic();
         if (this.acyclic && buildIndex) {
-            this.reachability = new RegularReachabilityDetector(linkage, verbose);
+            this.reachability = new RegularReachabilityDetector(graph, verbose);
         }
     }
 
@@ -37,25 +37,30 @@ public class Validator {
             return false;
         }
 
+        TermGraph.Adjacency lambek = graph.getLambek();
+        TermGraph.Adjacency lambekInverse = graph.getLambekInverse();
+
         // T(CT)
         // For each Lambek edge (s, t), there exists a negative vertex x such that
         // there is a regular path from s to x and there is no Lambek edge (s2, x) such that
         // there is a regular path from s to s2.
         // IMPORTANT: I had to add to that rule an additional requirement that t is regular reachable from x, which seems
         // compatible with the original LC-graphs definition from (Penn 2004)
-        for (Edge s_t : linkage.getLambekEdges()) {
-            Vertex s = s_t.getSource();
-            Vertex t = s_t.getTarget();
-
-            // check all negative vertices
-            for (Vertex x : linkage.getVertices()) {
-                if (x.getPolarity() == Polarity.NEGATIVE && x != t && reachability.reachable(s, x) && reachability.reachable(x, t)) {
-                    Set<Edge> edges = linkage.getInEdges(x).stream().filter(Edge::isLambek).collect(Collectors.toSet());
-
-                    // here, s can be s2
-                    boolean pass = edges.stream().map(Edge::getSource).noneMatch(s2 -> reachability.reachable(s, s2));
-                    if (!pass) {
-                        return false;
+        for (int s = 0; s < graph.size(); s++) {
+            for (int k = lambek.begin(s); k < lambek.end(s); k++) {
+                int t = lambek.neighbour(k);
+
+                // check all negative vertices reachable from s, only those with incoming Lambek edges can fail
+                for (int x = reachability.nextReachable(s, 0); x >= 0; x = reachability.nextReachable(s, x + 1)) {
+                    if (lambekInverse.degree(x) > 0 && graph.getVertex(x).getPolarity() == Polarity.NEGATIVE && x != t
+                            && reachability.reachable(x, t)) {
+
+                        // here, s can be s2
+                        for (int m = lambekInverse.begin(x); m < lambekInverse.end(x); m++) {
+                            if (reachability.reachable(s, lambekInverse.neighbour(m))) {
+                                return false;
+                            }
+                        }
                     }
                 }
             }
@@ -76,30 +81,33 @@ public class Validator {
             return false;
         }
 
+        TermGraph.Adjacency lambek = graph.getLambek();
+
         // T(2) For all Lambek edges (s, t) in G, there is a regular path from s to t.
         // note that sources of lambek edges are singletons in PTG
-        for (Edge l : linkage.getLambekEdges()) {
-            Vertex s = l.getSource();
-            Vertex t = l.getTarget();
+        for (int s = 0; s < graph.size(); s++) {
+            for (int k = lambek.begin(s); k < lambek.end(s); k++) {
+                int t = lambek.neighbour(k);
 
-            if (!reachability.reachable(s, t)) {
-                if (verbose) {
-                    System.out.println("DEBUG: T(2) fail");
-                }
-                return false;
-            }
-
-            // IMPORTANT: this is to rule out regular links within the same complex category, which corresponds
-            // to a non-empty antecedent side-condition in the rules of introduction to the succedent of L.
-            // This check diverges from the Fowler's definition.
-            if (linkage.findEdge(s, t, Edge.Partition.LINKAGE).size() != 0) {
-                boolean violation = linkage.getInEdges(s).stream().anyMatch(Edge::isRegular);
-                if (violation) {
+                if (!reachability.reachable(s, t)) {
                     if (verbose) {
-                        System.out.println("DEBUG: T(2)-addition fail");
+                        System.out.println("DEBUG: T(2) fail");
                     }
                     return false;
                 }
+
+                // IMPORTANT: this is to rule out regular links within the same complex category, which corresponds
+                // to a non-empty antecedent side-condition in the rules of introduction to the succedent of L.
+                // This check diverges from the Fowler's definition.
+                if (isLinked(s, t)) {
+                    boolean violation = graph.getRegularInverse().degree(s) > 0;
+                    if (violation) {
+                        if (verbose) {
+                            System.out.println("DEBUG: T(2)-addition fail");
+                        }
+                        return false;
+                    }
+                }
             }
         }
 
@@ -110,39 +118,48 @@ public class Validator {
      * Regular acyclic means only regular edges are considered. Acyclicity is checked by means of a topological sort.
      */
     public boolean isRegularAcyclic() {
-        Deque<Vertex> stack = new ArrayDeque<>();
-        List<Edge> order = new ArrayList<>();
-        Set<Edge> visited = new HashSet<>();
+        TermGraph.Adjacency regular = graph.getRegular();
+        int size = graph.size();
 
-        for (Vertex v : linkage.getVertices()) {
-            if (linkage.getPredecessors(v, Edge.Type.REGULAR).size() == 0) {
-                stack.add(v);
+        int[] indegree = new int[size];
+        int[] stack = new int[size];
+        int top = 0;
+
+        for (int v = 0; v < size; v++) {
+            indegree[v] = graph.getRegularInverse().degree(v);
+            if (graph.contains(v) && indegree[v] == 0) {
+                stack[top++] = v;
             }
         }
 
-        while (stack.size() > 0) {
-            Vertex v = stack.pop();
-            for (Edge edge : linkage.getOutEdges(v)) {
-                if (edge.getType() == Edge.Type.REGULAR && !visited.contains(edge)) {
-                    visited.add(edge);
-                    order.add(edge);
-
-                    boolean flag = true;
-                    Vertex dest = edge.getTarget();
-                    for (Edge in : linkage.getInEdges(dest)) {
-                        if (in.getType() == Edge.Type.REGULAR && !visited.contains(in)) {
-                            flag = false;
-                            break;
-                        }
-                    }
-                    if (flag) {
-                        stack.push(dest);
-                    }
+        int sorted = 0;
+        while (top > 0) {
+            int v = stack[--top];
+            sorted++;
+            for (int k = regular.begin(v); k < regular.end(v); k++) {
+                int dest = regular.neighbour(k);
+                if (--indegree[dest] == 0) {
+                    stack[top++] = dest;
                 }
             }
         }
 
-        return linkage.getRegularEdges().size() == order.size();
+        return sorted == graph.order();
+    }
+
+    /**
+     * @return true if there is an edge from s to t in the axiomatic linkage
+     */
+    private boolean isLinked(int s, int t) {
+        TermGraph.Adjacency[] adjacencies = {graph.getRegular(), graph.getLambek()};
+        for (TermGraph.Adjacency adjacency : adjacencies) {
+            for (int k = adjacency.begin(s); k < adjacency.end(s); k++) {
+                if (adjacency.neighbour(k) == t && adjacency.isAxiomatic(k)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
 }
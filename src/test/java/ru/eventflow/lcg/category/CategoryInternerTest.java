@@ -0,0 +1,73 @@
+package ru.eventflow.lcg.category;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CategoryInternerTest {
+
+    @Test
+    public void testSameInstance() {
+        CategoryParser parser = new CategoryParser(new CategoryInterner());
+        Category a = parser.parse("(S\\NP)/NP");
+        Category b = parser.parse("(S \\ NP) / NP");
+        assertSame(a, b);
+        assertSame(((ComplexCategory) a).getLeft(), parser.parse("S\\NP"));
+        assertSame(((ComplexCategory) ((ComplexCategory) a).getLeft()).getRight(), ((ComplexCategory) a).getRight());
+        assertNotSame(a, parser.parse("S\\(NP/NP)"));
+    }
+
+    @Test
+    public void testIds() {
+        CategoryInterner interner = new CategoryInterner();
+        CategoryParser parser = new CategoryParser(interner);
+        Category a = parser.parse("(S\\NP)/NP");
+        // S, NP, S\NP and (S\NP)/NP
+        assertEquals(4, interner.size());
+        assertEquals(3, a.getId());
+        assertEquals(0, parser.parse("S").getId());
+        assertNotEquals(a.getId(), parser.parse("S\\(NP/NP)").getId());
+        assertEquals(Category.UNINTERNED, new PrimitiveCategory("S").getId());
+    }
+
+    @Test
+    public void testIntern() {
+        CategoryInterner interner = new CategoryInterner();
+        Category built = new ComplexCategory(Connective.RIGHT_DIVISION, new PrimitiveCategory("A"), new PrimitiveCategory("B"));
+        Category interned = interner.intern(built);
+        assertEquals(built, interned);
+        assertEquals(built.hashCode(), interned.hashCode());
+        assertEquals("(A/B)", interned.getSymbol());
+        assertSame(interned, interner.intern(built));
+        assertSame(interned, interner.intern(interned));
+        assertSame(interned, interner.complex(Connective.RIGHT_DIVISION, interner.primitive("A"), interner.primitive("B")));
+    }
+
+    /**
+     * A weak interner hands out the same instance while it is in use, but does not keep it alive.
+     */
+    @Test
+    public void testWeak() throws InterruptedException {
+        CategoryInterner interner = CategoryInterner.weak();
+        CategoryParser parser = new CategoryParser(interner);
+        Category a = parser.parse("(S\\NP)/NP");
+        assertSame(a, parser.parse("(S\\NP)/NP"));
+        assertSame(a, interner.intern(a));
+
+        WeakReference<Category> reference = new WeakReference<>(a);
+        a = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        assertEquals("((S\\NP)/NP)", parser.parse("(S\\NP)/NP").getSymbol());
+    }
+
+}
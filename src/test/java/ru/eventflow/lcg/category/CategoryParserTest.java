@@ -0,0 +1,73 @@
+package ru.eventflow.lcg.category;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CategoryParserTest {
+
+    private final CategoryParser parser = new CategoryParser();
+
+    @Test
+    public void testParse() {
+        assertEquals("S", parser.parse("S").getSymbol());
+        assertEquals("((S\\NP)/NP)", parser.parse("(S\\NP)/NP").getSymbol());
+        assertEquals("(S\\(NP/NP))", parser.parse("S\\(NP/NP)").getSymbol());
+        assertEquals("((A*B)*C)", parser.parse(" A . B * C ").getSymbol());
+        assertEquals("NP[nb]", parser.parse("((NP[nb]))").getSymbol());
+    }
+
+    /**
+     * The connectives are left-associative and of equal precedence.
+     */
+    @Test
+    public void testAssociativity() {
+        assertEquals("((A/B)/C)", parser.parse("A/B/C").getSymbol());
+        assertEquals("((A\\B)/C)", parser.parse("A\\B/C").getSymbol());
+        assertEquals("((A/B)\\C)", parser.parse("A/B\\C").getSymbol());
+    }
+
+    @Test
+    public void testMalformed() {
+        assertNull(parser.parse(""));
+        assertNull(parser.parse("A B"));
+        assertNull(parser.parse("(A/B"));
+        assertNull(parser.parse("A/B)"));
+        assertNull(parser.parse("A//B"));
+        assertNull(parser.parse("/A"));
+        assertNull(parser.parse("()"));
+    }
+
+    /**
+     * The recursive parser accepted some inputs with an unclosed parenthesis, they are rejected now.
+     */
+    @Test
+    public void testUnbalanced() {
+        assertNull(parser.parse("((A)"));
+        assertNull(parser.parse("A*(( B)"));
+        assertNull(parser.parse("((B)/BB"));
+        assertNull(parser.parse("(((B)/BB)/BB"));
+    }
+
+    @Test
+    public void testDeeplyNested() {
+        int depth = 100000;
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            s.append("A/(");
+        }
+        s.append("A");
+        for (int i = 0; i < depth; i++) {
+            s.append(")");
+        }
+        Category category = parser.parse(s.toString());
+        for (int i = 0; i < depth; i++) {
+            ComplexCategory c = (ComplexCategory) category;
+            assertEquals(Connective.RIGHT_DIVISION, c.getConnective());
+            category = c.getRight();
+        }
+        assertEquals("A", category.getSymbol());
+    }
+
+}
@@ -0,0 +1,94 @@
+package ru.eventflow.lcg.frame;
+
+import org.junit.Before;
+import org.junit.Test;
+import ru.eventflow.lcg.category.PrimitiveCategory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LinkageTest {
+
+    private Vertex v1;
+    private Vertex v2;
+    private Vertex v3;
+    private Linkage linkage;
+
+    @Before
+    public void setUp() {
+        v1 = new Vertex(new PrimitiveCategory("A"), Polarity.POSITIVE);
+        v2 = new Vertex(new PrimitiveCategory("A"), Polarity.NEGATIVE);
+        v3 = new Vertex(new PrimitiveCategory("B"), Polarity.NEGATIVE);
+
+        linkage = new Linkage();
+        linkage.addEdge(v1, v2, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+        linkage.addEdge(v1, v3, Edge.Partition.FRAME, Edge.Type.LAMBEK);
+    }
+
+    @Test
+    public void testNeighbourhood() {
+        assertEquals(2, linkage.getOutEdges(v1).size());
+        assertEquals(1, linkage.getOutEdges(v1, Edge.Type.REGULAR).size());
+        assertEquals(1, linkage.getInEdges(v3, Edge.Type.LAMBEK).size());
+        assertTrue(linkage.getInEdges(v3, Edge.Type.REGULAR).isEmpty());
+        assertTrue(linkage.getPredecessors(v2, Edge.Type.REGULAR).contains(v1));
+        assertTrue(linkage.getSuccessors(v1).contains(v3));
+        assertEquals(1, linkage.getRegularEdges().size());
+        assertEquals(1, linkage.getLambekEdges().size());
+    }
+
+    @Test
+    public void testDuplicateEdgeIgnored() {
+        linkage.addEdge(v1, v2, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+        assertEquals(2, linkage.getEdges().size());
+        assertEquals(1, linkage.findEdge(v1, v2, Edge.Partition.LINKAGE).size());
+        assertTrue(linkage.findEdge(v1, v2, Edge.Partition.FRAME).isEmpty());
+    }
+
+    @Test
+    public void testRemoveEdge() {
+        Edge edge = linkage.findEdge(v1, v3, Edge.Partition.FRAME).iterator().next();
+        linkage.removeEdge(edge);
+        assertEquals(1, linkage.getEdges().size());
+        assertTrue(linkage.getLambekEdges().isEmpty());
+        assertTrue(linkage.getInEdges(v3).isEmpty());
+        assertEquals(1, linkage.getOutEdges(v1).size());
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        Linkage copy = linkage.copy();
+        copy.addEdge(v2, v3, Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+        assertEquals(3, copy.getEdges().size());
+        assertEquals(2, linkage.getEdges().size());
+        assertTrue(linkage.getOutEdges(v2).isEmpty());
+        assertEquals(1, copy.getInEdges(v3, Edge.Type.REGULAR).size());
+    }
+
+    @Test
+    public void testPersistentLinkage() {
+        Vertex v4 = new Vertex(new PrimitiveCategory("B"), Polarity.POSITIVE);
+        linkage.addVertex(v4);
+
+        PersistentLinkage base = PersistentLinkage.of(linkage);
+        PersistentLinkage left = base.add(new Edge(v4, v3, Edge.Partition.LINKAGE, Edge.Type.REGULAR));
+        PersistentLinkage right = base.add(new Edge(v2, v3, Edge.Partition.LINKAGE, Edge.Type.REGULAR));
+        PersistentLinkage joined = left.join(right);
+
+        assertEquals(0, base.size());
+        assertEquals(1, left.size());
+        assertEquals(2, joined.size());
+
+        Linkage materialized = joined.toLinkage();
+        assertEquals(4, materialized.getEdges().size());
+        assertEquals(2, materialized.getInEdges(v3, Edge.Type.REGULAR).size());
+
+        // the base is never modified
+        assertEquals(2, linkage.getEdges().size());
+
+        TermGraph graph = joined.toGraph();
+        assertEquals(2, graph.getRegularInverse().degree(graph.indexOf(v3)));
+        assertEquals(1, graph.getLambekInverse().degree(graph.indexOf(v3)));
+    }
+
+}
@@ -0,0 +1,96 @@
+package ru.eventflow.lcg.frame;
+
+import org.junit.Test;
+import ru.eventflow.lcg.parser.Sequent;
+import ru.eventflow.lcg.parser.SequentBuilder;
+import ru.eventflow.lcg.parser.Validator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MatchingTest {
+
+    @Test
+    public void testRoundTrip() {
+        int[] partners = {5, 2, 1, 4, 3, 0};
+        Matching matching = Matching.of(partners);
+        assertEquals(6, matching.size());
+        assertTrue(matching.isPerfect());
+        assertArrayEquals(partners, matching.partners());
+        assertEquals("(()())", matching.toString());
+    }
+
+    @Test
+    public void testPartial() {
+        int[] partners = {-1, 2, 1, -1};
+        Matching matching = Matching.of(partners);
+        assertFalse(matching.isPerfect());
+        assertArrayEquals(partners, matching.partners());
+        assertEquals(".().", matching.toString());
+    }
+
+    @Test
+    public void testLongMatching() {
+        // several words of the encoding
+        int[] partners = new int[100];
+        for (int i = 0; i < 50; i++) {
+            partners[i] = 99 - i;
+            partners[99 - i] = i;
+        }
+        assertArrayEquals(partners, Matching.of(partners).partners());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCrossing() {
+        Matching.of(new int[]{2, 3, 0, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAsymmetric() {
+        Matching.of(new int[]{1, 2, 1});
+    }
+
+    @Test
+    public void testEquals() {
+        Matching a = Matching.of(new int[]{1, 0, 3, 2});
+        Matching b = Matching.of(new int[]{1, 0, 3, 2});
+        Matching c = Matching.of(new int[]{3, 2, 1, 0});
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, c);
+    }
+
+    @Test
+    public void testToLinkage() {
+        Sequent sequent = SequentBuilder.builder().setAntecedent("NP", "NP\\S").setSuccedent("S").build();
+        ProofFrame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        Matching matching = Matching.of(new int[]{1, 0, 3, 2});
+
+        List<Edge> edges = matching.toEdges(frame);
+        assertEquals(2, edges.size());
+        for (Edge e : edges) {
+            assertEquals(Polarity.POSITIVE, e.getSource().getPolarity());
+            assertEquals(Polarity.NEGATIVE, e.getTarget().getPolarity());
+            assertEquals(Edge.Partition.LINKAGE, e.getPartition());
+        }
+
+        Linkage linkage = matching.toLinkage(frame);
+        List<Edge> links = new ArrayList<>();
+        for (Edge e : linkage.getEdges()) {
+            if (e.getPartition() == Edge.Partition.LINKAGE) {
+                links.add(e);
+            }
+        }
+        assertEquals(matching, Matching.of(frame, links));
+        assertEquals(frame.getLinkage().getEdges().size() + 2, linkage.getEdges().size());
+        assertTrue(new Validator(linkage, false, true).isLIntegral());
+        assertTrue(new Validator(matching.toGraph(frame), false, true).isLIntegral());
+    }
+
+}
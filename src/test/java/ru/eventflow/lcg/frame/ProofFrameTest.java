@@ -7,6 +7,9 @@ import ru.eventflow.lcg.parser.Sequent;
 import ru.eventflow.lcg.parser.SequentBuilder;
 import ru.eventflow.lcg.parser.Validator;
 
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -28,6 +31,88 @@ public class ProofFrameTest {
         assertTrue(acyclic);
     }
 
+    @Test
+    public void testDenseIds() {
+        for (int i = 0; i < proofFrame.getAxiomatic().size(); i++) {
+            Vertex vertex = proofFrame.getAxiom(i);
+            assertEquals(i, vertex.getId());
+            assertEquals(i, proofFrame.getIndex(vertex));
+        }
+        // the atom of the succedent comes last
+        Vertex s = proofFrame.getAxiom(proofFrame.getAxiomatic().size() - 1);
+        assertEquals("S", s.getCategory().getSymbol());
+        assertEquals(Polarity.POSITIVE, s.getPolarity());
+    }
+
+    @Test
+    public void testGraph() {
+        TermGraph graph = proofFrame.getGraph();
+        Linkage linkage = proofFrame.getLinkage();
+        assertEquals(proofFrame.getAxiomatic().size(), graph.size());
+
+        int regular = 0;
+        int lambek = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            assertEquals(v, graph.indexOf(graph.getVertex(v)));
+            regular += graph.getRegular().degree(v);
+            lambek += graph.getLambek().degree(v);
+            for (int k = graph.getRegular().begin(v); k < graph.getRegular().end(v); k++) {
+                Vertex target = graph.getVertex(graph.getRegular().neighbour(k));
+                assertEquals(1, linkage.findEdge(graph.getVertex(v), target, Edge.Partition.FRAME).size());
+                assertTrue(graph.getRegularInverse().contains(target.getId(), v));
+            }
+        }
+        assertEquals(linkage.getRegularEdges().size(), regular);
+        assertEquals(linkage.getLambekEdges().size(), lambek);
+    }
+
+    @Test
+    public void testFrameEdges() {
+        // S-  NP+  S-  S+  NP-  NP+  NP-  S+
+        assertEquals(8, proofFrame.getAxiomatic().size());
+        Linkage linkage = proofFrame.getLinkage();
+        assertEquals(3, linkage.getRegularEdges().size());
+        assertEquals(1, linkage.getLambekEdges().size());
+        assertFrameEdge(linkage, 0, 1, Edge.Type.REGULAR);
+        assertFrameEdge(linkage, 1, 2, Edge.Type.LAMBEK);
+        assertFrameEdge(linkage, 4, 3, Edge.Type.REGULAR);
+        assertFrameEdge(linkage, 4, 5, Edge.Type.REGULAR);
+    }
+
+    /**
+     * Frames built from the same cached templates share categories, but not vertices.
+     */
+    @Test
+    public void testTemplates() {
+        Sequent sequent = SequentBuilder.builder().setAntecedent("NP", "(NP\\S)/NP", "NP").setSuccedent("S").build();
+        ProofFrame other = ProofFrameBuilder.builder().setSequent(sequent).build();
+        assertTrue(proofFrame.getAxiom(3).getCategory() == other.getAxiom(1).getCategory());
+        assertTrue(proofFrame.getAxiom(3) != other.getAxiom(1));
+        assertEquals(2, other.getLinkage().getRegularEdges().size());
+        assertEquals(1, other.getLinkage().findEdge(other.getAxiom(2), other.getAxiom(1), Edge.Partition.FRAME).size());
+    }
+
+    @Test
+    public void testTemplateCacheBounded() {
+        for (int i = 0; i <= FrameTemplate.CAPACITY; i++) {
+            Sequent sequent = SequentBuilder.builder().setAntecedent("T" + i + "/U").setSuccedent("T" + i + "/U").build();
+            ProofFrameBuilder.builder().setSequent(sequent).build();
+        }
+        assertTrue(FrameTemplate.cached() <= FrameTemplate.CAPACITY);
+
+        // evicted templates are compiled again
+        Sequent sequent = SequentBuilder.builder().setAntecedent("T0/U").setSuccedent("T0/U").build();
+        ProofFrame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        assertEquals(4, frame.getAxiomatic().size());
+        assertTrue(frame.getAxiom(0).getCategory() == frame.getAxiom(3).getCategory());
+    }
+
+    private void assertFrameEdge(Linkage linkage, int source, int target, Edge.Type type) {
+        Set<Edge> edges = linkage.findEdge(proofFrame.getAxiom(source), proofFrame.getAxiom(target), Edge.Partition.FRAME);
+        assertEquals(1, edges.size());
+        assertEquals(type, edges.iterator().next().getType());
+    }
+
     @Test
     public void testRegularCyclic() {
         Linkage cyclic = new Linkage();
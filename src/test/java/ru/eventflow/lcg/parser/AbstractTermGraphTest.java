@@ -0,0 +1,48 @@
+package ru.eventflow.lcg.parser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.Test;
+import ru.eventflow.lcg.dto.ParseDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AbstractTermGraphTest {
+
+    private static final String[][] SEQUENTS = {
+            {"S", "S/(S/S)"},
+            {"N\\N", "(N\\N)\\(S\\S)"},
+            {"T/(T\\X)", "X"},
+            {"A/C", "A/B", "B/C"},
+            {"X\\Z", "X/Y", "Y\\Z"},
+            {"S", "N", "(N\\N)/S", "S\\(N/S)"},
+            {"(S/N)\\N", "(S\\N)/N"},
+            {"A", "(A/(A/B))/(C/D)", "(C/D)", "A/B"},
+            {"S\\NP", "(S\\NP)/(S\\NP)", "(S\\NP)/NP", "NP"},
+            {"S", "S/(NP\\S)", "(NP\\S)/NP", "NP"}
+    };
+
+    /**
+     * Merging items with equal abstract term graphs must neither lose nor add integral linkages.
+     */
+    @Test
+    public void testSameParses() throws JsonProcessingException {
+        List<Sequent> sequents = new ArrayList<>();
+        for (String[] categories : SEQUENTS) {
+            String[] antecedent = new String[categories.length - 1];
+            System.arraycopy(categories, 1, antecedent, 0, antecedent.length);
+            sequents.add(SequentBuilder.builder().setAntecedent(antecedent).setSuccedent(categories[0]).build());
+        }
+        sequents.add(Fixtures.ccgbank());
+
+        for (Sequent sequent : sequents) {
+            ParseDTO expected = new ChartLCGParser(false).parse(sequent);
+            ParseDTO actual = new ChartLCGParser(false, true).parse(sequent);
+            assertEquals(Fixtures.toStrings(expected), Fixtures.toStrings(actual));
+            assertEquals(expected.getParses().size(), actual.getParses().size());
+        }
+    }
+
+}
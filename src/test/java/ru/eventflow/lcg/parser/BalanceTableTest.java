@@ -0,0 +1,44 @@
+package ru.eventflow.lcg.parser;
+
+import org.junit.Test;
+import ru.eventflow.lcg.frame.Polarity;
+import ru.eventflow.lcg.frame.ProofFrame;
+import ru.eventflow.lcg.frame.ProofFrameBuilder;
+import ru.eventflow.lcg.frame.Vertex;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BalanceTableTest {
+
+    @Test
+    public void testBalanced() {
+        Sequent sequent = Fixtures.ccgbank();
+        ProofFrame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        List<Vertex> atoms = frame.getAxiomatic();
+        BalanceTable table = BalanceTable.of(atoms);
+
+        for (int l = 0; l < atoms.size(); l++) {
+            for (int r = l; r < atoms.size(); r++) {
+                assertEquals(isBalanced(atoms, l, r), table.isBalanced(l, r));
+            }
+        }
+    }
+
+    private boolean isBalanced(List<Vertex> atoms, int l, int r) {
+        for (int i = l; i <= r; i++) {
+            int count = 0;
+            for (int k = l; k <= r; k++) {
+                if (atoms.get(k).getCategory() == atoms.get(i).getCategory()) {
+                    count += atoms.get(k).getPolarity() == Polarity.POSITIVE ? 1 : -1;
+                }
+            }
+            if (count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
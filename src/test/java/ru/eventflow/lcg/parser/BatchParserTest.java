@@ -0,0 +1,142 @@
+package ru.eventflow.lcg.parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BatchParserTest {
+
+    @Test
+    public void testOrderAndErrors() {
+        Sequent ccgbank = Fixtures.ccgbank();
+        Sequent trivial = SequentBuilder.builder().setAntecedent("S").setSuccedent("S").build();
+        Sequent unsupported = SequentBuilder.builder().setAntecedent("S").setSuccedent("S", "S").build();
+
+        List<Sequent> sequents = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sequents.add(i % 5 == 0 ? ccgbank : i % 5 == 3 ? unsupported : trivial);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BatchParser batchParser = new BatchParser(new ChartLCGParser(false, true), pool, 3);
+            List<BatchParser.Result> results = batchParser.parse(sequents).collect(Collectors.toList());
+
+            assertEquals(sequents.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                BatchParser.Result result = results.get(i);
+                assertEquals(i, result.getIndex());
+                assertSame(sequents.get(i), result.getSequent());
+                if (i % 5 == 3) {
+                    assertFalse(result.isSuccessful());
+                    assertTrue(result.getError() instanceof IllegalStateException);
+                } else {
+                    assertTrue(result.isSuccessful());
+                    assertEquals(i % 5 == 0 ? 4 : 1, result.getParse().getParses().size());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A slow sequent at the head of the window does not keep the pool from parsing the sequents behind it.
+     */
+    @Test
+    public void testSlowHead() {
+        Sequent slow = SequentBuilder.builder().setAntecedent("S").setSuccedent("S").build();
+        List<Sequent> sequents = new ArrayList<>();
+        sequents.add(slow);
+        for (int i = 0; i < 6; i++) {
+            sequents.add(SequentBuilder.builder().setAntecedent("S").setSuccedent("S").build());
+        }
+
+        LCGParser delegate = new ChartLCGParser(false);
+        CountDownLatch others = new CountDownLatch(sequents.size() - 1);
+        LCGParser parser = sequent -> {
+            if (sequent == slow) {
+                try {
+                    if (!others.await(10, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("The sequents behind the head were not parsed.");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            } else {
+                others.countDown();
+            }
+            return delegate.parse(sequent);
+        };
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            BatchParser batchParser = new BatchParser(parser, pool, 2, sequents.size());
+            List<BatchParser.Result> results = batchParser.parse(sequents).collect(Collectors.toList());
+            assertEquals(sequents.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i, results.get(i).getIndex());
+                assertTrue(results.get(i).isSuccessful());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Closing the stream cancels the sequents which were submitted but not started yet.
+     */
+    @Test
+    public void testClose() throws InterruptedException {
+        Sequent first = SequentBuilder.builder().setAntecedent("S").setSuccedent("S").build();
+        Sequent other = SequentBuilder.builder().setAntecedent("S").setSuccedent("S").build();
+
+        LCGParser delegate = new ChartLCGParser(false);
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        LCGParser parser = sequent -> {
+            calls.incrementAndGet();
+            if (sequent != first) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return delegate.parse(sequent);
+        };
+
+        List<Sequent> sequents = new ArrayList<>(Collections.nCopies(10, other));
+        sequents.set(0, first);
+
+        // a single worker runs at most one of the blocked sequents
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            BatchParser batchParser = new BatchParser(parser, pool, 4, 0);
+            try (Stream<BatchParser.Result> results = batchParser.parse(sequents)) {
+                Iterator<BatchParser.Result> it = results.iterator();
+                assertTrue(it.next().isSuccessful());
+            }
+            gate.countDown();
+            assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+            assertTrue(calls.get() <= 2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
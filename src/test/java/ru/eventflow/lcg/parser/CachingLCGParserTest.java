@@ -0,0 +1,79 @@
+package ru.eventflow.lcg.parser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import ru.eventflow.lcg.category.CategoryInterner;
+import ru.eventflow.lcg.dto.ParseDTO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CachingLCGParserTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Sequents which only differ in the names of their primitive categories share an entry.
+     */
+    @Test
+    public void testRenaming() throws JsonProcessingException {
+        Sequent first = SequentBuilder.builder().setAntecedent("A/B", "B").setSuccedent("A").build();
+        Sequent second = SequentBuilder.builder().setAntecedent("N/NP", "NP").setSuccedent("N").build();
+        Sequent third = SequentBuilder.builder().setAntecedent("N/NP", "N").setSuccedent("N").build();
+
+        CachingLCGParser parser = new CachingLCGParser(new ChartLCGParser(false), 16);
+        for (Sequent sequent : new Sequent[]{first, second, third, second}) {
+            ParseDTO expected = new ChartLCGParser(false).parse(sequent);
+            assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(parser.parse(sequent)));
+        }
+
+        assertEquals(2, parser.getHits());
+        assertEquals(2, parser.getMisses());
+        assertEquals(2, parser.size());
+        assertEquals(1, parser.countParses(first));
+        assertEquals(0, parser.countParses(third));
+        assertEquals(4, parser.getHits());
+    }
+
+    @Test
+    public void testEviction() {
+        Sequent first = SequentBuilder.builder().setAntecedent("A/B", "B").setSuccedent("A").build();
+        Sequent second = SequentBuilder.builder().setAntecedent("A").setSuccedent("A").build();
+
+        CachingLCGParser parser = new CachingLCGParser(new ChartLCGParser(false), 1);
+        parser.parse(first);
+        parser.parse(second);
+        parser.parse(first);
+        assertEquals(0, parser.getHits());
+        assertEquals(3, parser.getMisses());
+        assertEquals(2, parser.getEvictions());
+        assertEquals(1, parser.size());
+
+        // a miss of a count is not cached
+        assertEquals(1, parser.countParses(second));
+        assertTrue(parser.recognize(first));
+        assertEquals(1, parser.getHits());
+        assertEquals(4, parser.getMisses());
+    }
+
+    /**
+     * The canonical form creates no categories, so atoms which are literally named by numbers are not confused
+     * with it and the shared interner does not grow.
+     */
+    @Test
+    public void testNumericSymbols() throws JsonProcessingException {
+        Sequent first = SequentBuilder.builder().setAntecedent("A/B", "B").setSuccedent("A").build();
+        Sequent second = SequentBuilder.builder().setAntecedent("1/0", "0").setSuccedent("1").build();
+        int interned = CategoryInterner.getDefault().size();
+
+        CachingLCGParser parser = new CachingLCGParser(new ChartLCGParser(false), 16);
+        for (Sequent sequent : new Sequent[]{first, second}) {
+            ParseDTO expected = new ChartLCGParser(false).parse(sequent);
+            assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(parser.parse(sequent)));
+        }
+        assertEquals(1, parser.getHits());
+        assertEquals(interned, CategoryInterner.getDefault().size());
+    }
+
+}
@@ -0,0 +1,62 @@
+package ru.eventflow.lcg.parser;
+
+import org.junit.Test;
+import ru.eventflow.lcg.frame.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class DynamicTopologicalOrderTest {
+
+    /**
+     * Links random pairs of atoms of opposite polarities one by one and compares the outcome of each insertion
+     * with a full topological sort of the materialized linkage.
+     */
+    @Test
+    public void testAgreesWithValidator() {
+        Sequent sequent = SequentBuilder.builder()
+                .setAntecedent("NP/N", "N", "(NP/N)\\NP", "N", "(S\\NP)/(S\\NP)", "S\\NP", "((S\\NP)\\(S\\NP))/NP", "NP", "(S\\S)\\NP")
+                .setSuccedent("S")
+                .build();
+        ProofFrame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        int size = frame.getAxiomatic().size();
+        Random random = new Random(42);
+
+        for (int run = 0; run < 200; run++) {
+            DynamicTopologicalOrder order = DynamicTopologicalOrder.of(frame.getGraph());
+            assertNotNull(order);
+
+            int[] partners = new int[size];
+            Arrays.fill(partners, -1);
+            List<Edge> links = new ArrayList<>();
+
+            while (order != null) {
+                int u = random.nextInt(size);
+                int v = random.nextInt(size);
+                Vertex source = frame.getAxiom(u);
+                Vertex target = frame.getAxiom(v);
+                if (partners[u] >= 0 || partners[v] >= 0 || source.getPolarity() != Polarity.POSITIVE || target.getPolarity() != Polarity.NEGATIVE) {
+                    if (links.size() * 2 >= size - 1) {
+                        break;
+                    }
+                    continue;
+                }
+
+                links.add(new Edge(source, target, Edge.Partition.LINKAGE, Edge.Type.REGULAR));
+                boolean acyclic = new Validator(TermGraph.of(frame.getLinkage(), links), false, false).isRegularAcyclic();
+
+                order = order.insert(u, v, frame.getGraph(), partners);
+                assertEquals(acyclic, order != null);
+
+                partners[u] = v;
+                partners[v] = u;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package ru.eventflow.lcg.parser;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExponentialLCGParserTest {
+
+    /**
+     * The validations are submitted while the linkages are enumerated, but never more than a bounded number at a time.
+     */
+    @Test
+    public void testBoundedValidation() {
+        Sequent sequent = SequentBuilder.builder()
+                .setAntecedent("S/S", "S/S", "S/S", "S/S", "S/S", "S/S", "S/S", "S")
+                .setSuccedent("S")
+                .build();
+
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Executor tracking = task -> {
+            submitted.incrementAndGet();
+            maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        };
+
+        try {
+            long expected = new ExponentialLCGParser().countParses(sequent);
+            assertEquals(expected, new ExponentialLCGParser(tracking, PrefilterPipeline.standard()).countParses(sequent));
+            assertTrue(submitted.get() > ExponentialLCGParser.MAX_IN_FLIGHT);
+            // a slot is released before the tracking wrapper returns, so each worker may be counted once more
+            assertTrue(maxPending.get() <= ExponentialLCGParser.MAX_IN_FLIGHT + pool.getParallelism());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package ru.eventflow.lcg.parser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.eventflow.lcg.dto.LinkageDTO;
+import ru.eventflow.lcg.dto.ParseDTO;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sequents and helpers shared by the parser tests.
+ */
+final class Fixtures {
+
+    /**
+     * The antecedent of sentence 0351.4 of CCGbank, which has 4 parses with the succedent S.
+     */
+    static final String[] CCGBANK_0351_4 = {
+            "NP/N", "N", "(NP/N)\\NP", "N", "(S\\NP)/(S\\NP)", "S\\NP", "((S\\NP)\\(S\\NP))/NP",
+            "NP/N", "N", "(NP/N)\\NP", "N", "NP", "(S\\S)\\NP"
+    };
+
+    private Fixtures() {
+    }
+
+    static Sequent ccgbank() {
+        return SequentBuilder.builder().setAntecedent(CCGBANK_0351_4).setSuccedent("S").build();
+    }
+
+    /**
+     * Vertices of different frames are distinct, so parses of different frames are compared by their JSON form.
+     */
+    static Set<String> toStrings(ParseDTO parse) throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        Set<String> strings = new HashSet<>();
+        for (LinkageDTO linkage : parse.getParses()) {
+            strings.add(mapper.writeValueAsString(linkage));
+        }
+        return strings;
+    }
+
+}
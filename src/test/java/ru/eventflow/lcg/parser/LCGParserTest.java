@@ -5,9 +5,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import ru.eventflow.lcg.dto.LinkageDTO;
 import ru.eventflow.lcg.dto.ParseDTO;
 
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class LCGParserTest {
 
@@ -390,6 +397,60 @@ public class LCGParserTest {
         assertEquals(4, parse.getParses().size());
     }
 
+    @Test
+    public void testRecognize() {
+        Sequent derivable = SequentBuilder.builder().setAntecedent("N", "(N\\N)/S", "S\\(N/S)").setSuccedent("S").build();
+        Sequent underivable = SequentBuilder.builder().setAntecedent("X/Y", "Y\\Z").setSuccedent("X\\Z").build();
+        for (LCGParser parser : new LCGParser[]{parser, new ChartLCGParser(false, true), new ExponentialLCGParser()}) {
+            assertTrue(parser.recognize(derivable));
+            assertFalse(parser.recognize(underivable));
+        }
+    }
+
+    @Test
+    public void testCountParses() {
+        Sequent sequent = Fixtures.ccgbank();
+        for (LCGParser parser : new LCGParser[]{parser, new ChartLCGParser(false, true)}) {
+            assertEquals(4, parser.countParses(sequent));
+        }
+
+        // the brute force parser is too slow for the sentence above
+        sequent = SequentBuilder.builder().setAntecedent("A/B", "B/C").setSuccedent("A/C").build();
+        assertEquals(1, new ExponentialLCGParser().countParses(sequent));
+        assertEquals(1, new ExponentialLCGParser(ForkJoinPool.commonPool()).countParses(sequent));
+    }
+
+    @Test
+    public void testStream() {
+        Sequent sequent = Fixtures.ccgbank();
+        assertEquals(4, parser.stream(sequent).count());
+        assertEquals(4, new ChartLCGParser(false, true).stream(sequent).count());
+        assertEquals(2, parser.stream(sequent).limit(2).count());
+
+        sequent = SequentBuilder.builder().setAntecedent("N", "(N\\N)/S", "S\\(N/S)").setSuccedent("S").build();
+        Iterator<LinkageDTO> it = new ExponentialLCGParser().iterate(sequent);
+        assertTrue(it.hasNext());
+        assertEquals(parser.parse(sequent).getParses().get(0).getLinks().size(), it.next().getLinks().size());
+        assertFalse(it.hasNext());
+    }
+
+    /**
+     * A single instance is shared by concurrent parses of different sequents.
+     */
+    @Test
+    public void testSharedInstance() {
+        LCGParser parser = new ChartLCGParser(false, true);
+        Sequent ccgbank = Fixtures.ccgbank();
+        Sequent composition = SequentBuilder.builder().setAntecedent("A/B", "B/C").setSuccedent("A/C").build();
+
+        long[] counts = IntStream.range(0, 32).parallel()
+                .mapToLong(i -> parser.countParses(i % 2 == 0 ? ccgbank : composition))
+                .toArray();
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(i % 2 == 0 ? 4 : 1, counts[i]);
+        }
+    }
+
     private void print(ParseDTO parse) {
         try {
             ObjectMapper mapper = new ObjectMapper();
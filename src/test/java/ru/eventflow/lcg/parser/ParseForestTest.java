@@ -0,0 +1,119 @@
+package ru.eventflow.lcg.parser;
+
+import org.junit.Test;
+import ru.eventflow.lcg.frame.Edge;
+import ru.eventflow.lcg.frame.Linkage;
+import ru.eventflow.lcg.frame.Matching;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParseForestTest {
+
+    @Test
+    public void testCount() {
+        Sequent sequent = Fixtures.ccgbank();
+        for (boolean abstractTermGraphs : new boolean[]{false, true}) {
+            ParseForest forest = new ChartLCGParser(false, abstractTermGraphs).parseForest(sequent);
+            assertEquals(4, forest.count());
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        Sequent sequent = Fixtures.ccgbank();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean abstractTermGraphs : new boolean[]{false, true}) {
+                ParseForest forest = new ChartLCGParser(false, abstractTermGraphs, pool, pool).parseForest(sequent);
+                assertEquals(4, forest.count());
+                assertEquals(toStrings(new ChartLCGParser(false).parseForest(sequent).getLinkCounts()),
+                        toStrings(forest.getLinkCounts()));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoParses() {
+        Sequent sequent = SequentBuilder.builder().setAntecedent("X/Y", "Y\\Z").setSuccedent("X\\Z").build();
+        ParseForest forest = new ChartLCGParser(false).parseForest(sequent);
+        assertEquals(0, forest.count());
+        assertEquals(0, forest.getLinks().size());
+        assertEquals(false, forest.iterator().hasNext());
+    }
+
+    /**
+     * The compact enumeration yields the same linkages as the full one, each of them once.
+     */
+    @Test
+    public void testMatchings() {
+        Sequent sequent = Fixtures.ccgbank();
+        for (boolean abstractTermGraphs : new boolean[]{false, true}) {
+            ParseForest forest = new ChartLCGParser(false, abstractTermGraphs).parseForest(sequent);
+
+            Set<Matching> matchings = new HashSet<>();
+            for (Iterator<Matching> it = forest.matchings(); it.hasNext(); ) {
+                Matching matching = it.next();
+                assertTrue(matching.isPerfect());
+                matchings.add(matching);
+            }
+            assertEquals(forest.count(), matchings.size());
+
+            Set<Matching> expected = new HashSet<>();
+            for (Linkage linkage : forest) {
+                Set<Edge> links = new HashSet<>();
+                for (Edge e : linkage.getEdges()) {
+                    if (e.getPartition() == Edge.Partition.LINKAGE) {
+                        links.add(e);
+                    }
+                }
+                expected.add(Matching.of(forest.getFrame(), links));
+            }
+            assertEquals(expected, matchings);
+        }
+    }
+
+    /**
+     * Link marginals must agree with the enumerated linkages.
+     */
+    @Test
+    public void testLinkCounts() {
+        Sequent sequent = Fixtures.ccgbank();
+        for (boolean abstractTermGraphs : new boolean[]{false, true}) {
+            ParseForest forest = new ChartLCGParser(false, abstractTermGraphs).parseForest(sequent);
+
+            Map<Edge, Long> expected = new HashMap<>();
+            int linkages = 0;
+            for (Linkage linkage : forest) {
+                linkages++;
+                for (Edge edge : linkage.getEdges()) {
+                    if (edge.getPartition() == Edge.Partition.LINKAGE) {
+                        expected.merge(edge, 1L, Long::sum);
+                    }
+                }
+            }
+
+            assertEquals(forest.count(), linkages);
+            assertEquals(expected, forest.getLinkCounts());
+        }
+    }
+
+    /**
+     * Vertices of different frames are distinct, so links of different parses are compared by their string form.
+     */
+    private Map<String, Long> toStrings(Map<Edge, Long> counts) {
+        Map<String, Long> strings = new HashMap<>();
+        counts.forEach((edge, count) -> strings.put(edge.toString(), count));
+        return strings;
+    }
+
+}
@@ -0,0 +1,67 @@
+package ru.eventflow.lcg.parser;
+
+import org.junit.Test;
+import ru.eventflow.lcg.dto.ParseDTO;
+import ru.eventflow.lcg.frame.Frame;
+import ru.eventflow.lcg.frame.ProofFrameBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrefilterTest {
+
+    @Test
+    public void testReject() {
+        PrefilterPipeline pipeline = PrefilterPipeline.standard();
+        assertSame(CountPrefilter.PARITY, reject(pipeline, "A", "A/B"));
+        assertSame(CountPrefilter.SUCCEDENT, reject(pipeline, "S", "NP/N", "N"));
+        assertSame(CountPrefilter.BALANCE, reject(pipeline, "S", "S/NP", "N"));
+        assertNull(reject(pipeline, "S", "S/NP", "NP"));
+        assertNull(reject(PrefilterPipeline.NONE, "S", "S/NP", "N"));
+    }
+
+    /**
+     * Every parser reports the filter which rejected a sequent, and rejected sequents have no parses anyway.
+     */
+    @Test
+    public void testParsers() {
+        Sequent balance = sequent("S", "S/NP", "N");
+        Sequent accepted = sequent("S", "S/NP", "NP");
+
+        LCGParser[] parsers = {new ChartLCGParser(false), new ChartLCGParser(false, true), new ExponentialLCGParser()};
+        for (LCGParser parser : parsers) {
+            ParseDTO rejected = parser.parse(balance);
+            assertEquals("count-balance", rejected.getRejectedBy());
+            assertEquals(4, rejected.getCategories().size());
+            assertTrue(rejected.getParses().isEmpty());
+            assertFalse(parser.recognize(balance));
+            assertEquals(0, parser.countParses(balance));
+            assertFalse(parser.iterate(balance).hasNext());
+
+            assertNull(parser.parse(accepted).getRejectedBy());
+            assertEquals(1, parser.countParses(accepted));
+        }
+
+        LCGParser[] unfiltered = {new ChartLCGParser(false, false, null, null, PrefilterPipeline.NONE),
+                new ExponentialLCGParser(null, PrefilterPipeline.NONE)};
+        for (LCGParser parser : unfiltered) {
+            assertNull(parser.parse(balance).getRejectedBy());
+            assertEquals(0, parser.countParses(balance));
+            assertEquals(0, parser.countParses(sequent("A", "A/B")));
+        }
+    }
+
+    private Prefilter reject(PrefilterPipeline pipeline, String succedent, String... antecedent) {
+        Sequent sequent = sequent(succedent, antecedent);
+        Frame frame = ProofFrameBuilder.builder().setSequent(sequent).build();
+        return pipeline.reject(sequent, frame);
+    }
+
+    private Sequent sequent(String succedent, String... antecedent) {
+        return SequentBuilder.builder().setAntecedent(antecedent).setSuccedent(succedent).build();
+    }
+
+}
@@ -82,4 +82,27 @@ public class RegularReachabilityDetectorTest {
         assertFalse(regularReachabilityDetector.reachable(v2, v4));
     }
 
+    /**
+     * More than 64 vertices, so that the rows of the closure span several words.
+     */
+    @Test
+    public void testLongChain() {
+        int size = 150;
+        Linkage linkage = new Linkage();
+        Vertex[] chain = new Vertex[size];
+        for (int i = 0; i < size; i++) {
+            chain[i] = v("c" + i);
+            linkage.addVertex(chain[i]);
+            if (i > 0) {
+                linkage.addEdge(chain[i - 1], chain[i], Edge.Partition.LINKAGE, Edge.Type.REGULAR);
+            }
+        }
+        RegularReachabilityDetector detector = new RegularReachabilityDetector(linkage, false);
+        assertTrue(detector.reachable(chain[0], chain[size - 1]));
+        assertTrue(detector.reachable(chain[63], chain[64]));
+        assertTrue(detector.reachable(chain[70], chain[130]));
+        assertFalse(detector.reachable(chain[130], chain[70]));
+        assertFalse(detector.reachable(chain[size - 1], chain[0]));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ru.eventflow.lcg.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScratchTest {
+
+    @Test
+    public void testReuse() {
+        Scratch scratch = Scratch.get();
+        int[] stack = scratch.stack(100);
+        assertSame(stack, scratch.stack(50));
+        assertSame(stack, scratch.stack(100));
+    }
+
+    /**
+     * A buffer of a long frame is not kept once a shorter frame is parsed on the same thread.
+     */
+    @Test
+    public void testTrim() {
+        Scratch scratch = Scratch.get();
+        int large = Scratch.RETAINED * 2;
+        assertEquals(large, scratch.forward(large).length);
+        assertEquals(10, scratch.forward(10).length);
+
+        scratch.clearMarks(large);
+        scratch.mark(large - 1);
+        assertTrue(scratch.isMarked(large - 1));
+        scratch.clearMarks(10);
+        assertFalse(scratch.isMarked(9));
+        scratch.mark(9);
+        assertTrue(scratch.isMarked(9));
+    }
+
+}
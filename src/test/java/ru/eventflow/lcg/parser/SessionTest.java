@@ -0,0 +1,54 @@
+package ru.eventflow.lcg.parser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.Test;
+import ru.eventflow.lcg.category.Category;
+import ru.eventflow.lcg.category.CategoryParser;
+import ru.eventflow.lcg.dto.ParseDTO;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class SessionTest {
+
+    private static final String[] SENTENCE = Fixtures.CCGBANK_0351_4;
+
+    private static final String[] SUCCEDENTS = {"S", "NP", "S\\NP", "NP/N"};
+
+    /**
+     * A session gives the same parses as parsing every prefix of the sentence from scratch.
+     */
+    @Test
+    public void testPrefixes() throws JsonProcessingException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (ChartLCGParser parser : new ChartLCGParser[]{new ChartLCGParser(false), new ChartLCGParser(false, true),
+                    new ChartLCGParser(false, true, pool)}) {
+                ChartLCGParser.Session session = parser.session();
+                CategoryParser categoryParser = new CategoryParser();
+                for (int n = 1; n <= SENTENCE.length; n++) {
+                    session.append(categoryParser.parse(SENTENCE[n - 1]));
+                    for (String succedent : SUCCEDENTS) {
+                        Sequent sequent = SequentBuilder.builder()
+                                .setAntecedent(Arrays.copyOf(SENTENCE, n))
+                                .setSuccedent(succedent)
+                                .build();
+                        Category category = categoryParser.parse(succedent);
+
+                        ParseDTO expected = parser.parse(sequent);
+                        ParseDTO actual = session.parse(category);
+                        assertEquals(Fixtures.toStrings(expected), Fixtures.toStrings(actual));
+                        assertEquals(expected.getSequent().getAntecedent(), actual.getSequent().getAntecedent());
+                        assertEquals(parser.countParses(sequent), session.countParses(category));
+                    }
+                }
+                assertEquals(4, session.countParses(categoryParser.parse("S")));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}